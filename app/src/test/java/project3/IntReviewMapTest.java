@@ -0,0 +1,154 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the map against a HashMap, including keys of one probe run that
+ * outlive removals around them, and that tombstones do not make the table
+ * grow.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class IntReviewMapTest {
+
+    @Test
+    void putGetAndRemove() {
+        IntReviewMap map = new IntReviewMap();
+        MovieReview first = review(7);
+        MovieReview second = review(7);
+        assertNull(map.put(7, first));
+        assertSame(first, map.put(7, second));
+        assertSame(second, map.get(7));
+        assertEquals(1, map.size());
+        assertSame(second, map.remove(7));
+        assertNull(map.remove(7));
+        assertNull(map.get(7));
+        assertEquals(0, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void keysBehindARemovedKeyStayReachable() {
+        IntReviewMap map = new IntReviewMap();
+        // Ids that share a probe run in a 16 slot table
+        int[] colliding = collidingIds(16, 4);
+        for (int id : colliding) {
+            map.put(id, review(id));
+        }
+        map.remove(colliding[0]);
+        map.remove(colliding[2]);
+        assertNull(map.get(colliding[0]));
+        assertEquals(colliding[1], map.get(colliding[1]).getId());
+        assertEquals(colliding[3], map.get(colliding[3]).getId());
+        // A put after a tombstone must still replace the existing key
+        MovieReview replacement = review(colliding[3]);
+        assertEquals(colliding[3], map.put(colliding[3], replacement).getId());
+        assertSame(replacement, map.get(colliding[3]));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChanges() {
+        Random random = new Random(5);
+        IntReviewMap map = new IntReviewMap();
+        Map<Integer, MovieReview> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int id = random.nextInt(2000) - 100;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                MovieReview review = review(id);
+                assertSame(expected.put(id, review), map.put(id, review));
+            } else if (op == 1) {
+                assertSame(expected.remove(id), map.remove(id));
+            } else {
+                assertSame(expected.get(id), map.get(id));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int id = -100; id < 1900; id++) {
+            assertSame(expected.get(id), map.get(id));
+        }
+        int[] ids = new int[map.size() + 2];
+        assertEquals(map.size() + 2, map.copyIds(ids, 2));
+        int[] copied = Arrays.copyOfRange(ids, 2, ids.length);
+        Arrays.sort(copied);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), copied);
+        Set<MovieReview> visited = new HashSet<>();
+        map.forEach(visited::add);
+        assertEquals(new HashSet<>(expected.values()), visited);
+        assertEquals(expected.keySet().stream().mapToInt(Integer::intValue).max().orElse(0), map.maxId());
+    }
+
+    @Test
+    void churnDoesNotGrowTheTable() {
+        IntReviewMap map = new IntReviewMap();
+        for (int id = 1; id <= 100000; id++) {
+            map.put(id, review(id));
+            if (id > 8) {
+                map.remove(id - 8);
+            }
+        }
+        assertEquals(8, map.size());
+        assertEquals(16, map.capacity());
+        for (int id = 100000 - 7; id <= 100000; id++) {
+            assertEquals(id, map.get(id).getId());
+        }
+    }
+
+    @Test
+    void growsPastTheLoadFactor() {
+        IntReviewMap map = new IntReviewMap(100);
+        int capacity = map.capacity();
+        assertTrue(capacity * 0.75 >= 100);
+        for (int id = 0; id < 100; id++) {
+            map.put(id, review(id));
+        }
+        assertEquals(capacity, map.capacity());
+        map.put(100, review(100));
+        for (int id = 101; id < 1000; id++) {
+            map.put(id, review(id));
+        }
+        assertEquals(1000, map.size());
+        assertEquals(999, map.maxId());
+        assertTrue(map.capacity() * 0.75 >= 1000);
+    }
+
+    private static MovieReview review(int id) {
+        return new MovieReview(id, "review" + id + ".txt", "text", ReviewScore.UNKNOWN, ReviewScore.UNKNOWN);
+    }
+
+    /**
+     * The first ids whose home slot is 0 in a table of the capacity, hashed
+     * the way IntReviewMap hashes them.
+     */
+    private static int[] collidingIds(int capacity, int count) {
+        int[] ids = new int[count];
+        int found = 0;
+        for (int id = 1; found < count; id++) {
+            int h = id;
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            if ((h & (capacity - 1)) == 0) {
+                ids[found++] = id;
+            }
+        }
+        return ids;
+    }
+}
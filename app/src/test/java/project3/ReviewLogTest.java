@@ -0,0 +1,219 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the log replays what was appended, stops at a torn or corrupt
+ * record, cuts a torn tail off when reopened, and moves its records on
+ * rotation.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class ReviewLogTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void paths() {
+        logPath = dir.resolve("database.wal").toString();
+        rotatedPath = dir.resolve("database.wal.old").toString();
+    }
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendInsert(review(1, "Great film, très bien"));
+            log.appendInsert(review(2, ""));
+            log.appendScore(1, ReviewScore.NEGATIVE);
+            log.appendDelete(2);
+            log.sync();
+        }
+        assertEquals(Arrays.asList(
+                "insert 1 pos/1.txt POSITIVE UNKNOWN Great film, très bien",
+                "insert 2 pos/2.txt POSITIVE UNKNOWN ",
+                "score 1 NEGATIVE",
+                "delete 2"), replay(logPath));
+    }
+
+    @Test
+    void closeWritesPendingRecords() throws IOException {
+        ReviewLog log = new ReviewLog(logPath, 1000, 60000);
+        log.appendDelete(1);
+        log.appendDelete(2);
+        assertTrue(log.size() > HEADER_SIZE);
+        log.close();
+        assertEquals(Arrays.asList("delete 1", "delete 2"), replay(logPath));
+        assertThrows(IllegalStateException.class, () -> log.appendDelete(3));
+    }
+
+    @Test
+    void replayStopsAtATornRecordAndReopeningCutsItOff() throws IOException {
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendInsert(review(1, "first"));
+            log.appendInsert(review(2, "second"));
+            log.sync();
+        }
+        long complete = Files.size(Path.of(logPath));
+        // A crash in the middle of the last record
+        try (RandomAccessFile file = new RandomAccessFile(logPath, "rw")) {
+            file.setLength(complete - 3);
+        }
+        assertEquals(List.of("insert 1 pos/1.txt POSITIVE UNKNOWN first"), replay(logPath));
+
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            assertTrue(Files.size(Path.of(logPath)) < complete - 3);
+            log.appendDelete(1);
+            log.sync();
+        }
+        assertEquals(Arrays.asList("insert 1 pos/1.txt POSITIVE UNKNOWN first", "delete 1"), replay(logPath));
+    }
+
+    @Test
+    void replayStopsAtACorruptRecord() throws IOException {
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendInsert(review(1, "first"));
+            log.appendInsert(review(2, "second"));
+            log.appendInsert(review(3, "third"));
+            log.sync();
+        }
+        byte[] bytes = Files.readAllBytes(Path.of(logPath));
+        int second = indexOf(bytes, "second");
+        bytes[second] ^= 1;
+        Files.write(Path.of(logPath), bytes);
+        assertEquals(List.of("insert 1 pos/1.txt POSITIVE UNKNOWN first"), replay(logPath));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotLogs() throws IOException {
+        Files.write(Path.of(logPath), "not a log at all".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> replay(logPath));
+        assertThrows(IOException.class, () -> new ReviewLog(logPath, 100, 1000));
+    }
+
+    @Test
+    void rotationMovesTheRecordsAndStartsAnEmptyLog() throws IOException {
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendDelete(1);
+            log.appendDelete(2);
+            log.rotate(rotatedPath);
+            assertEquals(HEADER_SIZE, log.size());
+            log.appendDelete(3);
+            log.sync();
+            assertEquals(Arrays.asList("delete 1", "delete 2"), replay(rotatedPath));
+            assertEquals(List.of("delete 3"), replay(logPath));
+
+            // A rotation whose compaction did not finish: the records are added
+            log.rotate(rotatedPath);
+            assertEquals(Arrays.asList("delete 1", "delete 2", "delete 3"), replay(rotatedPath));
+            assertEquals(List.of(), replay(logPath));
+        }
+    }
+
+    @Test
+    void rotationCutsATornTailOffTheRotatedLog() throws IOException {
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendDelete(1);
+            log.rotate(rotatedPath);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(rotatedPath, "rw")) {
+            // Half a record header
+            file.seek(file.length());
+            file.write(new byte[] {0, 0, 0});
+        }
+        try (ReviewLog log = new ReviewLog(logPath, 100, 1000)) {
+            log.appendDelete(2);
+            log.rotate(rotatedPath);
+        }
+        assertEquals(Arrays.asList("delete 1", "delete 2"), replay(rotatedPath));
+        assertFalse(Files.size(Path.of(logPath)) > HEADER_SIZE);
+    }
+
+    @Test
+    void stopsAtTheFirstFailedWrite() throws Exception {
+        ReviewLog log = new ReviewLog(logPath, 100, 1000);
+        log.appendDelete(1);
+        log.sync();
+        // Make the next write fail, as a full disk would
+        Field channel = ReviewLog.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(log)).close();
+        log.appendDelete(2);
+        assertThrows(IOException.class, log::sync);
+        assertThrows(IOException.class, log::sync);
+        assertThrows(UncheckedIOException.class, () -> log.appendDelete(3));
+        assertThrows(IOException.class, () -> log.rotate(rotatedPath));
+        assertThrows(IOException.class, log::close);
+        Field writer = ReviewLog.class.getDeclaredField("writer");
+        writer.setAccessible(true);
+        assertFalse(((Thread) writer.get(log)).isAlive());
+        assertThrows(IllegalStateException.class, () -> log.appendDelete(4));
+        log.close();
+        assertEquals(List.of("delete 1"), replay(logPath));
+        assertFalse(Files.exists(Path.of(rotatedPath)));
+    }
+
+    private static MovieReview review(int id, String text) {
+        return new MovieReview(id, "pos/" + id + ".txt", text, ReviewScore.POSITIVE, ReviewScore.UNKNOWN);
+    }
+
+    private static List<String> replay(String path) throws IOException {
+        List<String> records = new ArrayList<>();
+        int count = ReviewLog.replay(path, new ReviewLog.Replay() {
+            @Override
+            public void insert(MovieReview review) {
+                records.add("insert " + review.getId() + " " + review.getFilePath() + " "
+                        + review.getRealScore().name() + " " + review.getPredictedScore().name() + " " + review.getText());
+            }
+
+            @Override
+            public void delete(int id) {
+                records.add("delete " + id);
+            }
+
+            @Override
+            public void score(int id, ReviewScore predictedScore) {
+                records.add("score " + id + " " + predictedScore.name());
+            }
+        });
+        assertEquals(records.size(), count);
+        return records;
+    }
+
+    private static int indexOf(byte[] bytes, String text) {
+        byte[] wanted = text.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + wanted.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + wanted.length, wanted, 0, wanted.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError(text + " not found");
+    }
+
+    /**
+     * Magic and version.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    private String logPath;
+    private String rotatedPath;
+}
@@ -0,0 +1,130 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the tokenizer cuts the same tokens as the regex pipeline of
+ * classifyReviewLegacy, from Strings and from UTF-8 bytes.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class ReviewTokenizerTest {
+
+    @Test
+    void cutsOnWhitespacePunctuationAndBreakTags() {
+        assertEquals(Arrays.asList("it", "s", "a", "great", "film", "really", "10", "10"),
+                tokens("It's a GREAT film!<br /><br />Really... 10/10"));
+        assertEquals(Arrays.asList("br", "not", "a", "tag"), tokens("<br>not a tag"));
+        assertEquals(List.of(), tokens("  ...<br />!? "));
+        assertEquals(List.of(), tokens(""));
+    }
+
+    @Test
+    void keepsNonAsciiLettersInTokens() {
+        assertEquals(Arrays.asList("café", "über", "naïve"), tokens("Café, ÜBER-naïve"));
+        // Non-breaking space is not \s, so it does not separate tokens
+        assertEquals(List.of("a\u00A0b"), tokens("a\u00A0b"));
+    }
+
+    @Test
+    void matchesLegacyOnRandomText() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String text = randomText(random);
+            assertEquals(legacyTokens(text), tokens(text), text);
+        }
+    }
+
+    @Test
+    void bytesMatchString() {
+        Random random = new Random(7);
+        ReviewTokenizer tokenizer = new ReviewTokenizer();
+        for (int i = 0; i < 2000; i++) {
+            String text = randomText(random);
+            byte[] utf8 = ("xx " + text + " yy").getBytes(StandardCharsets.UTF_8);
+            int offset = "xx ".length();
+            int length = utf8.length - offset - " yy".length();
+            List<String> fromBytes = new ArrayList<>();
+            int count = tokenizer.tokenize(utf8, offset, length,
+                    (token, n) -> fromBytes.add(new String(token, 0, n)));
+            assertEquals(tokens(text), fromBytes, text);
+            assertEquals(fromBytes.size(), count);
+        }
+    }
+
+    @Test
+    void growsBufferForLongTokens() {
+        char[] letters = new char[1000];
+        Arrays.fill(letters, 'A');
+        String word = new String(letters);
+        assertEquals(List.of(word.toLowerCase(), "b"), tokens(word + " b"));
+        List<String> fromBytes = new ArrayList<>();
+        byte[] utf8 = (word + " b").getBytes(StandardCharsets.UTF_8);
+        new ReviewTokenizer().tokenize(utf8, 0, utf8.length,
+                (token, n) -> fromBytes.add(new String(token, 0, n)));
+        assertEquals(List.of(word.toLowerCase(), "b"), fromBytes);
+    }
+
+    @Test
+    void separatorsAreAsciiOnly() {
+        assertTrue(ReviewTokenizer.isSeparator(' '));
+        assertTrue(ReviewTokenizer.isSeparator('~'));
+        assertTrue(ReviewTokenizer.isSeparator('\u000B'));
+        assertFalse(ReviewTokenizer.isSeparator('a'));
+        assertFalse(ReviewTokenizer.isSeparator('\u00A0'));
+        assertFalse(ReviewTokenizer.isSeparator('’'));
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int count = new ReviewTokenizer().tokenize(text,
+                (token, length) -> tokens.add(new String(token, 0, length)));
+        assertEquals(tokens.size(), count);
+        return tokens;
+    }
+
+    /**
+     * The tokens classifyReviewLegacy looks up, without the empty token
+     * split leaves when the text starts with a separator.
+     */
+    private static List<String> legacyTokens(String text) {
+        text = text.replaceAll("<br />", " ");
+        text = text.replaceAll("\\p{Punct}", " ");
+        text = text.toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.split("\\s+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int parts = random.nextInt(30);
+        for (int i = 0; i < parts; i++) {
+            text.append(PARTS[random.nextInt(PARTS.length)]);
+        }
+        return text.toString();
+    }
+
+    // Pieces of review text; the lowercase mappings of all of them are one
+    // char long, as String.toLowerCase and Character.toLowerCase differ
+    // otherwise
+    private static final String[] PARTS = {
+        "movie", "Plot", "ACTING", " ", "  ", "\t", "\n", "\r\n", ".", ",", "!", "'", "\"",
+        "-", "...", "<br />", "<br/>", "<br", " />", "<", ">", "(", ")", "10", "/", "é",
+        "Ü", "ß", "日本", "\u00A0", "’", "🎬", "_", "~", "@",
+    };
+}
@@ -0,0 +1,242 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reads archives built block by block in the test, with the header variants
+ * of ustar, GNU and PAX writers.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class TarGzReviewSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsTxtEntriesInOrder() throws IOException {
+        Tar tar = new Tar();
+        tar.entry("pos/", '5', new byte[0]);
+        tar.entry("pos/1_9.txt", '0', bytes("Great film."));
+        tar.entry("README.md", '0', bytes("not a review"));
+        tar.entry("neg/2_1.txt", '\0', bytes("Dull."));
+        tar.entry("link.txt", '2', new byte[0]);
+        Path archive = tar.write("reviews.tar.gz");
+        assertEquals(Arrays.asList(archive + "!/pos/1_9.txt=Great film.", archive + "!/neg/2_1.txt=Dull."),
+                entries(archive));
+    }
+
+    @Test
+    void joinsTheUstarPrefix() throws IOException {
+        Tar tar = new Tar();
+        tar.block(tar.header("1_9.txt", "deep/reviews", '0', octal(2, 12)));
+        tar.content(bytes("ok"));
+        Path archive = tar.write("prefix.tgz");
+        assertEquals(List.of(archive + "!/deep/reviews/1_9.txt=ok"), entries(archive));
+    }
+
+    @Test
+    void readsGnuLongNames() throws IOException {
+        String name = "reviews/" + "x".repeat(150) + ".txt";
+        Tar tar = new Tar();
+        tar.entry("././@LongLink", 'L', bytes(name + "\0"));
+        tar.entry(name.substring(0, 99), '0', bytes("long"));
+        tar.entry("short.txt", '0', bytes("short"));
+        Path archive = tar.write("gnu.tar.gz");
+        assertEquals(Arrays.asList(archive + "!/" + name + "=long", archive + "!/short.txt=short"),
+                entries(archive));
+    }
+
+    @Test
+    void readsPaxPathAndSize() throws IOException {
+        String name = "reviews/" + "é".repeat(120) + ".txt";
+        byte[] text = bytes("the size comes from the PAX record");
+        Tar tar = new Tar();
+        tar.entry("PaxHeaders/0", 'x',
+                bytes(pax("path", name) + pax("size", String.valueOf(text.length))));
+        // The header size is ignored in favour of the record
+        tar.block(tar.header("truncated", "", '0', octal(0, 12)));
+        tar.content(text);
+        tar.entry("plain.txt", '0', bytes("plain"));
+        Path archive = tar.write("pax.tar.gz");
+        assertEquals(Arrays.asList(archive + "!/" + name + "=the size comes from the PAX record",
+                archive + "!/plain.txt=plain"), entries(archive));
+    }
+
+    @Test
+    void ignoresGlobalPaxRecordsWithoutPathOrSize() throws IOException {
+        Tar tar = new Tar();
+        tar.entry("pax_global_header", 'g', bytes(pax("comment", "made by a test")));
+        tar.entry("a.txt", '0', bytes("a"));
+        Path archive = tar.write("global.tar.gz");
+        assertEquals(List.of(archive + "!/a.txt=a"), entries(archive));
+
+        Tar bad = new Tar();
+        bad.entry("pax_global_header", 'g', bytes(pax("path", "all.txt")));
+        bad.entry("a.txt", '0', bytes("a"));
+        Path badArchive = bad.write("global-path.tar.gz");
+        assertThrows(IOException.class, () -> entries(badArchive));
+    }
+
+    @Test
+    void rejectsCorruptPaxRecords() throws IOException {
+        Tar tar = new Tar();
+        tar.entry("PaxHeaders/0", 'x', bytes("99 path=a.txt\n"));
+        tar.entry("a.txt", '0', bytes("a"));
+        Path archive = tar.write("corrupt.tar.gz");
+        assertThrows(IOException.class, () -> entries(archive));
+
+        Tar negative = new Tar();
+        negative.entry("PaxHeaders/0", 'x', bytes(pax("size", "-1")));
+        negative.entry("a.txt", '0', bytes("a"));
+        Path negativeArchive = negative.write("negative.tar.gz");
+        assertThrows(IOException.class, () -> entries(negativeArchive));
+    }
+
+    @Test
+    void readsBase256Sizes() throws IOException {
+        byte[] size = new byte[12];
+        size[0] = (byte) 0x80;
+        size[11] = 5;
+        Tar tar = new Tar();
+        tar.block(tar.header("big.txt", "", '0', size));
+        tar.content(bytes("large"));
+        Path archive = tar.write("base256.tar.gz");
+        assertEquals(List.of(archive + "!/big.txt=large"), entries(archive));
+
+        // Negative numbers are not sizes
+        size[0] = (byte) 0xFF;
+        Tar negative = new Tar();
+        negative.block(negative.header("big.txt", "", '0', size));
+        negative.content(bytes("large"));
+        Path negativeArchive = negative.write("negative256.tar.gz");
+        assertThrows(IOException.class, () -> entries(negativeArchive));
+    }
+
+    @Test
+    void stopsAtTheEndWithoutAMarker() throws IOException {
+        Tar tar = new Tar();
+        tar.entry("a.txt", '0', bytes("a"));
+        Path archive = dir.resolve("nomarker.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            tar.blocks.writeTo(out);
+        }
+        try (ReviewSource source = new TarGzReviewSource(archive)) {
+            assertEquals(archive + "!/a.txt", source.next().getPath());
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    void readsASingleEntryBack() throws IOException {
+        Tar tar = new Tar();
+        tar.entry("a.txt", '0', bytes("first"));
+        tar.entry("b.txt", '0', bytes("second"));
+        Path archive = tar.write("single.tar.gz");
+        assertArrayEquals(bytes("second"), ReviewSource.readArchiveEntry(archive.toString(), "b.txt"));
+        assertThrows(IOException.class, () -> ReviewSource.readArchiveEntry(archive.toString(), "c.txt"));
+    }
+
+    private static List<String> entries(Path archive) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (ReviewSource source = ReviewSource.open(archive)) {
+            for (ReviewSource.Entry entry = source.next(); entry != null; entry = source.next()) {
+                entries.add(entry.getPath() + "=" + new String(entry.getContent(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] octal(long value, int length) {
+        String digits = String.format("%0" + (length - 1) + "o", value);
+        return Arrays.copyOf(bytes(digits), length);
+    }
+
+    /**
+     * A PAX record, whose length counts its own digits.
+     */
+    private static String pax(String key, String value) {
+        int body = 1 + bytes(key).length + 1 + bytes(value).length + 1;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length++;
+        }
+        return length + " " + key + "=" + value + "\n";
+    }
+
+    /**
+     * Writes tar blocks into memory, then gzipped into the temp directory.
+     */
+    private final class Tar {
+
+        void entry(String name, char type, byte[] content) {
+            block(header(name, "", type, octal(content.length, 12)));
+            content(content);
+        }
+
+        byte[] header(String name, String prefix, char type, byte[] size) {
+            byte[] header = new byte[BLOCK_SIZE];
+            put(header, 0, bytes(name), 100);
+            put(header, 100, octal(0644, 8), 8);
+            put(header, 124, size, 12);
+            header[156] = (byte) type;
+            put(header, 257, bytes("ustar\0"), 6);
+            put(header, 263, bytes("00"), 2);
+            put(header, 345, bytes(prefix), 155);
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            int checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xFF;
+            }
+            put(header, 148, octal(checksum, 8), 8);
+            return header;
+        }
+
+        void block(byte[] block) {
+            blocks.writeBytes(block);
+        }
+
+        void content(byte[] content) {
+            blocks.writeBytes(content);
+            blocks.writeBytes(new byte[(BLOCK_SIZE - content.length % BLOCK_SIZE) % BLOCK_SIZE]);
+        }
+
+        Path write(String fileName) throws IOException {
+            Path archive = dir.resolve(fileName);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+                blocks.writeTo(out);
+                out.write(new byte[2 * BLOCK_SIZE]);
+            }
+            return archive;
+        }
+
+        private void put(byte[] header, int offset, byte[] field, int length) {
+            System.arraycopy(field, 0, header, offset, Math.min(field.length, length));
+        }
+
+        private final ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+    }
+
+    private static final int BLOCK_SIZE = 512;
+}
@@ -0,0 +1,117 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the candidates of a substring include every review containing
+ * it, before and after removals and across save and load.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class TrigramIndexTest {
+
+    @Test
+    void findsReviewsContainingTheSubstring() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "a dull plot");
+        index.add(2, "the plot twists");
+        index.add(3, "great acting");
+        assertArrayEquals(new int[] {1, 2}, index.candidates("plot"));
+        assertArrayEquals(new int[] {3}, index.candidates("acting"));
+        assertArrayEquals(new int[0], index.candidates("zebra"));
+        // Trigrams are case sensitive, as String.contains is
+        assertArrayEquals(new int[0], index.candidates("PLOT"));
+    }
+
+    @Test
+    void shortSubstringsMatchEverything() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "abc");
+        assertNull(index.candidates("ab"));
+        assertNull(index.candidates(""));
+        assertArrayEquals(new int[] {1}, index.candidates("abc"));
+    }
+
+    @Test
+    void candidatesIncludeEveryMatch() {
+        Random random = new Random(3);
+        String[] texts = new String[500];
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 0; id < texts.length; id++) {
+            texts[id] = randomText(random, 200);
+            index.add(id, texts[id]);
+        }
+        for (int q = 0; q < 300; q++) {
+            String query = randomText(random, 3 + random.nextInt(4));
+            int[] candidates = index.candidates(query);
+            assertSorted(candidates);
+            for (int id = 0; id < texts.length; id++) {
+                if (texts[id].contains(query)) {
+                    assertTrue(Arrays.binarySearch(candidates, id) >= 0, query + " in " + id);
+                }
+            }
+        }
+    }
+
+    @Test
+    void removedReviewsAreNoLongerCandidates() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "boring movie");
+        index.add(2, "boring book");
+        index.remove(1, "boring movie");
+        assertArrayEquals(new int[] {2}, index.candidates("boring"));
+        assertArrayEquals(new int[0], index.candidates("movie"));
+        assertTrue(index.matches(new int[] {2}));
+        assertFalse(index.matches(new int[] {1, 2}));
+    }
+
+    @Test
+    void matchesComparesTheSetOfIds() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(5, "five");
+        index.add(9, "nine");
+        assertTrue(index.matches(new int[] {9, 5}));
+        assertFalse(index.matches(new int[] {5}));
+        assertFalse(index.matches(new int[] {5, 10}));
+    }
+
+    @Test
+    void saveAndLoadKeepTheIndex(@TempDir Path dir) throws IOException {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "a dull plot");
+        index.add(2, "the plot twists");
+        String file = dir.resolve("database.tri").toString();
+        index.save(file);
+        TrigramIndex loaded = TrigramIndex.load(file);
+        assertEquals(index.trigramCount(), loaded.trigramCount());
+        assertArrayEquals(new int[] {1, 2}, loaded.candidates("plot"));
+        assertArrayEquals(new int[] {2}, loaded.candidates("twist"));
+        assertTrue(loaded.matches(new int[] {1, 2}));
+    }
+
+    private static void assertSorted(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i], "not sorted");
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = "abcde ".charAt(random.nextInt(6));
+        }
+        return new String(text);
+    }
+}
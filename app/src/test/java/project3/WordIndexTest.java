@@ -0,0 +1,224 @@
+package project3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks boolean and phrase query semantics, against a plain evaluation of
+ * the same queries where the result is not obvious, with reviews added out
+ * of order and removed.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+class WordIndexTest {
+
+    @Test
+    void combinesWordsWithOperators() {
+        WordIndex index = sample();
+        assertArrayEquals(new int[] {1, 3}, index.search("boring"));
+        assertArrayEquals(new int[] {1}, index.search("boring AND acting"));
+        assertArrayEquals(new int[] {1}, index.search("boring acting"));
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("boring OR great"));
+        assertArrayEquals(new int[] {3}, index.search("boring NOT acting"));
+        assertArrayEquals(new int[] {2, 4}, index.search("NOT boring"));
+        assertArrayEquals(new int[0], index.search("zebra"));
+    }
+
+    @Test
+    void notBindsTighterThanAndWhichBindsTighterThanOr() {
+        WordIndex index = sample();
+        // great OR (boring AND acting)
+        assertArrayEquals(new int[] {1, 2}, index.search("great OR boring AND acting"));
+        // (great OR boring) AND acting
+        assertArrayEquals(new int[] {1, 2}, index.search("(great OR boring) AND acting"));
+        // (great OR boring) AND (NOT acting)
+        assertArrayEquals(new int[] {3}, index.search("(great OR boring) NOT acting"));
+        // great OR (plot AND (NOT boring))
+        assertArrayEquals(new int[] {2, 4}, index.search("great OR plot NOT boring"));
+    }
+
+    @Test
+    void phrasesNeedAdjacentWordsInOrder() {
+        WordIndex index = sample();
+        assertArrayEquals(new int[] {3}, index.search("\"the plot\""));
+        assertArrayEquals(new int[] {1}, index.search("\"boring acting\""));
+        assertArrayEquals(new int[0], index.search("\"plot the\""));
+        // Phrases are tokenized like the reviews
+        assertArrayEquals(new int[] {2}, index.search("\"GREAT, acting!\""));
+        assertArrayEquals(new int[0], index.search("\"\""));
+    }
+
+    @Test
+    void rejectsMalformedQueries() {
+        WordIndex index = sample();
+        assertThrows(IllegalArgumentException.class, () -> index.search("boring AND"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("(boring"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("boring)"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("OR boring"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("\"boring"));
+        assertThrows(IllegalArgumentException.class, () -> index.search(""));
+    }
+
+    @Test
+    void matchesPlainEvaluationWithIdsOutOfOrderAndRemovals() {
+        Random random = new Random(11);
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 3000; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+        List<List<String>> texts = new ArrayList<>(Collections.nCopies(ids.size() + 1, null));
+        WordIndex index = new WordIndex();
+        for (int id : ids) {
+            List<String> words = new ArrayList<>();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                words.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+            }
+            texts.set(id, words);
+            index.add(id, String.join(" ", words));
+        }
+        // Enough removals to purge the lists at least once
+        for (int id : ids.subList(0, 1500)) {
+            index.remove(id);
+            texts.set(id, null);
+        }
+        for (int q = 0; q < 200; q++) {
+            List<String> query = randomQuery(random);
+            assertArrayEquals(evaluate(texts, query), index.search(String.join(" ", query)),
+                    String.join(" ", query));
+        }
+        for (int q = 0; q < 100; q++) {
+            String first = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            String second = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            assertArrayEquals(phrase(texts, first, second),
+                    index.search("\"" + first + " " + second + "\""), first + " " + second);
+        }
+    }
+
+    @Test
+    void matchesComparesTheSetOfIds() {
+        WordIndex index = sample();
+        assertTrue(index.matches(new int[] {4, 3, 2, 1}));
+        index.remove(3);
+        assertTrue(index.matches(new int[] {1, 2, 4}));
+        assertFalse(index.matches(new int[] {1, 2, 3, 4}));
+        assertFalse(index.matches(new int[] {1, 2, 5}));
+    }
+
+    @Test
+    void saveAndLoadKeepTheIndex(@TempDir Path dir) throws IOException {
+        WordIndex index = sample();
+        index.remove(4);
+        String file = dir.resolve("database.wix").toString();
+        index.save(file);
+        WordIndex loaded = WordIndex.load(file);
+        assertTrue(loaded.matches(new int[] {1, 2, 3}));
+        assertArrayEquals(index.search("boring OR great"), loaded.search("boring OR great"));
+        assertArrayEquals(new int[] {3}, loaded.search("\"the plot\""));
+        assertArrayEquals(new int[0], loaded.search("plot NOT boring"));
+        // A loaded index takes ids after the saved ones
+        loaded.add(5, "the plot thickens");
+        assertArrayEquals(new int[] {3, 5}, loaded.search("\"the plot\""));
+    }
+
+    private static WordIndex sample() {
+        WordIndex index = new WordIndex();
+        // Out of order, so some postings wait in the buffers
+        index.add(3, "Boring. The plot drags.");
+        index.add(1, "Boring acting, boring everything");
+        index.add(4, "A plot with holes");
+        index.add(2, "Great acting!");
+        return index;
+    }
+
+    /**
+     * Terms separated by AND, OR, NOT or nothing.
+     */
+    private static List<String> randomQuery(Random random) {
+        List<String> query = new ArrayList<>();
+        int terms = 1 + random.nextInt(4);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                String op = OPERATORS[random.nextInt(OPERATORS.length)];
+                if (!op.isEmpty()) {
+                    query.add(op);
+                }
+            }
+            query.add(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return query;
+    }
+
+    /**
+     * Evaluates a query of randomQuery: the OR of AND chains, where NOT
+     * removes the next term from the chain.
+     */
+    private static int[] evaluate(List<List<String>> texts, List<String> query) {
+        TreeSet<Integer> result = new TreeSet<>();
+        TreeSet<Integer> chain = null;
+        String op = null;
+        for (String token : query) {
+            if (token.equals("OR")) {
+                result.addAll(chain);
+                chain = null;
+            } else if (token.equals("AND") || token.equals("NOT")) {
+                op = token;
+            } else {
+                TreeSet<Integer> term = containing(texts, token);
+                if (chain == null) {
+                    chain = term;
+                } else if ("NOT".equals(op)) {
+                    chain.removeAll(term);
+                } else {
+                    chain.retainAll(term);
+                }
+                op = null;
+            }
+        }
+        result.addAll(chain);
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static TreeSet<Integer> containing(List<List<String>> texts, String word) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int id = 0; id < texts.size(); id++) {
+            if (texts.get(id) != null && texts.get(id).contains(word)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static int[] phrase(List<List<String>> texts, String first, String second) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int id = 0; id < texts.size(); id++) {
+            List<String> words = texts.get(id);
+            for (int i = 0; words != null && i + 1 < words.size(); i++) {
+                if (words.get(i).equals(first) && words.get(i + 1).equals(second)) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static final String[] VOCABULARY = {
+        "good", "bad", "plot", "acting", "boring", "great", "the", "film",
+    };
+
+    private static final String[] OPERATORS = {"AND", "OR", "NOT", ""};
+}
@@ -0,0 +1,91 @@
+package project3;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Classifying one review: answered by the memo, scored by the tokenizer
+ * from a String or from the arena bytes, and scored by the original regex
+ * classifier.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifyReviewBenchmark {
+
+    @Param({"short", "medium", "long"})
+    public String reviewLength;
+
+    @Setup
+    public void setUp() throws IOException {
+        handler = new ReviewHandler();
+        handler.loadPosNegWords(Fixtures.positiveWords(), Fixtures.negativeWords());
+        reviews = Fixtures.readReviews(handler, Fixtures.reviewFiles(reviewLength, REVIEWS))
+                .toArray(new MovieReview[0]);
+
+        arenaHandler = new ReviewHandler();
+        arenaHandler.loadPosNegWords(Fixtures.positiveWords(), Fixtures.negativeWords());
+        arenaHandler.enableTextArena();
+        arenaReviews = Fixtures.readReviews(arenaHandler, Fixtures.reviewFiles(reviewLength, REVIEWS))
+                .toArray(new MovieReview[0]);
+        for (MovieReview review : arenaReviews) {
+            arenaHandler.getTextArena().store(review);
+        }
+    }
+
+    @Benchmark
+    public ReviewScore classifyReviewMemoized() {
+        return handler.classifyReview(nextReview(reviews));
+    }
+
+    @Benchmark
+    public ReviewScore classifyReview() {
+        handler.getClassificationMemo().clear();
+        return handler.classifyReview(nextReview(reviews));
+    }
+
+    @Benchmark
+    public ReviewScore classifyReviewArena() {
+        arenaHandler.getClassificationMemo().clear();
+        return arenaHandler.classifyReview(nextReview(arenaReviews));
+    }
+
+    @Benchmark
+    public ReviewScore classifyReviewLegacy() {
+        return handler.classifyReviewLegacy(nextReview(reviews));
+    }
+
+    private MovieReview nextReview(MovieReview[] from) {
+        next = (next + 1) % from.length;
+        return from[next];
+    }
+
+    /**
+     * Reviews per length bucket, classified in turn.
+     */
+    private static final int REVIEWS = 16;
+
+    private ReviewHandler handler;
+    private MovieReview[] reviews;
+    private ReviewHandler arenaHandler;
+    private MovieReview[] arenaReviews;
+    private int next;
+}
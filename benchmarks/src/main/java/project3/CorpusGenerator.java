@@ -0,0 +1,186 @@
+package project3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a synthetic review corpus of any size for scale testing.
+ * Reviews are stitched together from sentences of the bundled reviews of
+ * the same class, with extra sentences built around words of the matching
+ * word list, and follow the length distribution of the bundled reviews.
+ * <p>
+ * Half the reviews go to pos and half to neg, 1000 files per numbered
+ * subfolder, named like the bundled ones (&lt;number&gt;_&lt;rating&gt;.txt).
+ * Each folder is generated from its own seed, so a corpus can be rebuilt
+ * exactly and folders are written in parallel.
+ * <pre>
+ * java -cp benchmarks.jar project3.CorpusGenerator &lt;outputDir&gt; &lt;reviews&gt; [seed]
+ * </pre>
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class CorpusGenerator {
+
+    /**
+     * Constructor.
+     * @param posWords The positive word list.
+     * @param negWords The negative word list.
+     * @param reviews The reviews to sample sentences and lengths from.
+     */
+    public CorpusGenerator(List<String> posWords, List<String> negWords, List<MovieReview> reviews) {
+        this.posWords = posWords.toArray(new String[0]);
+        this.negWords = negWords.toArray(new String[0]);
+        List<String> pos = new ArrayList<>();
+        List<String> neg = new ArrayList<>();
+        List<Integer> posLengths = new ArrayList<>();
+        List<Integer> negLengths = new ArrayList<>();
+        for (MovieReview review : reviews) {
+            boolean positive = review.getRealScore() == ReviewScore.POSITIVE;
+            for (String sentence : review.getText().split(SENTENCE_END)) {
+                if (!sentence.isBlank()) {
+                    (positive ? pos : neg).add(sentence.trim());
+                }
+            }
+            (positive ? posLengths : negLengths).add(review.getText().length());
+        }
+        this.posSentences = pos.toArray(new String[0]);
+        this.negSentences = neg.toArray(new String[0]);
+        this.posLengths = posLengths.stream().mapToInt(Integer::intValue).toArray();
+        this.negLengths = negLengths.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Generates one review.
+     * @param positive Whether the review is positive.
+     * @param random The source of randomness.
+     * @return The review text.
+     */
+    public String review(boolean positive, Random random) {
+        String[] sentences = positive ? posSentences : negSentences;
+        int[] lengths = positive ? posLengths : negLengths;
+        int targetLength = lengths[random.nextInt(lengths.length)];
+        StringBuilder text = new StringBuilder(targetLength + 256);
+        while (text.length() < targetLength) {
+            if (text.length() > 0) {
+                text.append(random.nextInt(10) == 0 ? "<br /><br />" : " ");
+            }
+            if (random.nextInt(4) == 0) {
+                // Mostly words of the review's class, some of the other one
+                boolean praise = random.nextInt(5) == 0 ? !positive : positive;
+                String[] words = praise ? posWords : negWords;
+                text.append(String.format(TEMPLATES[random.nextInt(TEMPLATES.length)],
+                        NOUNS[random.nextInt(NOUNS.length)], words[random.nextInt(words.length)]));
+            } else {
+                text.append(sentences[random.nextInt(sentences.length)]);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes a corpus of the given size.
+     * @param outputDir The folder receiving pos and neg.
+     * @param reviews Number of reviews.
+     * @param seed The seed the folders' seeds are derived from.
+     * @throws IOException if a file cannot be written.
+     */
+    public void generate(Path outputDir, int reviews, long seed) throws IOException {
+        int perClass = (reviews + 1) / 2;
+        int folders = (perClass + FILES_PER_FOLDER - 1) / FILES_PER_FOLDER;
+        AtomicInteger done = new AtomicInteger();
+        try {
+            IntStream.range(0, 2 * folders).parallel().forEach(task -> {
+                boolean positive = task % 2 == 1;
+                int folder = task / 2;
+                int classCount = positive ? reviews / 2 : perClass;
+                int first = folder * FILES_PER_FOLDER;
+                int last = Math.min(classCount, first + FILES_PER_FOLDER);
+                if (first >= last) {
+                    return;
+                }
+                Random random = new Random(seed * 31 + task);
+                Path dir = outputDir.resolve(positive ? "pos" : "neg").resolve(String.format("%05d", folder));
+                try {
+                    Files.createDirectories(dir);
+                    for (int n = first; n < last; n++) {
+                        int rating = positive ? 7 + random.nextInt(4) : 1 + random.nextInt(4);
+                        Files.write(dir.resolve(n + "_" + rating + ".txt"),
+                                review(positive, random).getBytes(StandardCharsets.UTF_8));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                int written = done.addAndGet(last - first);
+                if ((written - (last - first)) * 10L / reviews != written * 10L / reviews) {
+                    System.out.println(written + " reviews written");
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Please provide command line arguments: <outputDir> <reviews> [seed]");
+            return;
+        }
+        try {
+            Path outputDir = Paths.get(args[0]);
+            int reviews = Integer.parseInt(args[1]);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+            ReviewHandler handler = new ReviewHandler();
+            handler.loadPosNegWords(Fixtures.positiveWords(), Fixtures.negativeWords());
+            // Sorted, so a seed gives the same corpus on every run
+            CorpusGenerator generator = new CorpusGenerator(new ArrayList<>(new TreeSet<>(handler.getPosWords())),
+                    new ArrayList<>(new TreeSet<>(handler.getNegWords())),
+                    Fixtures.readReviews(handler, Fixtures.corpus()));
+
+            long start = System.nanoTime();
+            generator.generate(outputDir, reviews, seed);
+            System.out.printf("Generated %d reviews in %s in %.1f s%n", reviews, outputDir,
+                    (System.nanoTime() - start) / 1e9);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println(e);
+        }
+    }
+
+    /**
+     * Splits a review after the end of each sentence.
+     */
+    private static final String SENTENCE_END = "(?<=[.!?])\\s+|<br /><br />";
+
+    private static final String[] TEMPLATES = {
+        "The %s was %s.",
+        "I thought the %s was %s.",
+        "Honestly, the %s is just %s.",
+        "A %2$s %1$s from start to finish.",
+        "Everything about the %s felt %s."
+    };
+
+    private static final String[] NOUNS = {
+        "acting", "plot", "script", "cast", "ending", "soundtrack", "direction",
+        "dialogue", "cinematography", "pacing", "story", "film", "movie"
+    };
+
+    private static final int FILES_PER_FOLDER = 1000;
+
+    private final String[] posWords;
+    private final String[] negWords;
+    private final String[] posSentences;
+    private final String[] negSentences;
+    private final int[] posLengths;
+    private final int[] negLengths;
+}
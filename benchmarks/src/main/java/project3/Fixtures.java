@@ -0,0 +1,205 @@
+package project3;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark fixtures built from the bundled corpus and word lists in data/.
+ * The data directory is given with -Dbench.data, or found by walking up from
+ * the working directory, so the benchmarks run from the repository root as
+ * well as from benchmarks/target.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * The directory holding Movie-reviews and the word lists.
+     * @return The data directory.
+     */
+    public static Path dataDirectory() {
+        String configured = System.getProperty("bench.data");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        for (Path dir = Paths.get("").toAbsolutePath(); dir != null; dir = dir.getParent()) {
+            if (Files.isDirectory(dir.resolve("data").resolve("Movie-reviews"))) {
+                return dir.resolve("data");
+            }
+        }
+        throw new IllegalStateException("Cannot find data/Movie-reviews above "
+                + Paths.get("").toAbsolutePath() + "; set -Dbench.data");
+    }
+
+    /**
+     * Path of the positive word list.
+     * @return data/positive-words.txt
+     */
+    public static String positiveWords() {
+        return dataDirectory().resolve("positive-words.txt").toString();
+    }
+
+    /**
+     * Path of the negative word list.
+     * @return data/negative-words.txt
+     */
+    public static String negativeWords() {
+        return dataDirectory().resolve("negative-words.txt").toString();
+    }
+
+    /**
+     * The labelled review files of the corpus, negative ones first.
+     * @return The neg and pos review files, sorted by name.
+     * @throws IOException if the corpus cannot be listed.
+     */
+    public static List<Path> corpus() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String folder : new String[] {"neg", "pos"}) {
+            try (Stream<Path> listing = Files.list(dataDirectory().resolve("Movie-reviews").resolve(folder))) {
+                files.addAll(listing.filter(p -> p.toString().endsWith(".txt")).sorted()
+                        .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Review files of one length bucket: the files around the 10th (short),
+     * 50th (medium) or 90th (long) percentile of file size.
+     * @param reviewLength short, medium or long.
+     * @param count Number of files.
+     * @return The files.
+     * @throws IOException if the corpus cannot be listed.
+     */
+    public static List<Path> reviewFiles(String reviewLength, int count) throws IOException {
+        double percentile;
+        switch (reviewLength) {
+            case "short":
+                percentile = 0.1;
+                break;
+            case "medium":
+                percentile = 0.5;
+                break;
+            case "long":
+                percentile = 0.9;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown review length " + reviewLength);
+        }
+        List<Path> bySize = corpus();
+        bySize.sort(Comparator.comparingLong(p -> p.toFile().length()));
+        int from = Math.max(0, Math.min(bySize.size() - count, (int) (percentile * bySize.size()) - count / 2));
+        return new ArrayList<>(bySize.subList(from, from + count));
+    }
+
+    /**
+     * Reads review files into reviews, classified as the app would.
+     * @param handler The handler reading and classifying them.
+     * @param files The review files.
+     * @return The reviews.
+     * @throws IOException if a file cannot be read.
+     */
+    public static List<MovieReview> readReviews(ReviewHandler handler, List<Path> files) throws IOException {
+        List<MovieReview> reviews = new ArrayList<>();
+        for (Path file : files) {
+            int realClass = file.getParent().getFileName().toString().equals("pos") ? 1 : 0;
+            MovieReview review = handler.readReview(file.toString(), realClass);
+            review.setPredictedScore(handler.classifyReview(review));
+            reviews.add(review);
+        }
+        return reviews;
+    }
+
+    /**
+     * A database of the given size, made of the corpus repeated as often as
+     * needed. Ids run from 1 to size.
+     * @param size Number of reviews.
+     * @return The reviews.
+     * @throws IOException if the corpus cannot be read.
+     */
+    public static List<MovieReview> database(int size) throws IOException {
+        ReviewHandler reader = new ReviewHandler();
+        reader.loadPosNegWords(positiveWords(), negativeWords());
+        List<MovieReview> corpus = readReviews(reader, corpus());
+        List<MovieReview> reviews = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            MovieReview source = corpus.get((id - 1) % corpus.size());
+            reviews.add(new MovieReview(id, source.getFilePath(), source.getText(),
+                    source.getRealScore(), source.getPredictedScore()));
+        }
+        return reviews;
+    }
+
+    /**
+     * A handler holding the given reviews in memory, indexed the way loadDB
+     * indexes them, without touching any database file.
+     * @param reviews The reviews.
+     * @return The handler, with the word lists loaded.
+     * @throws IOException if the word lists cannot be read.
+     */
+    public static ReviewHandler handler(List<MovieReview> reviews) throws IOException {
+        ReviewHandler handler = new ReviewHandler();
+        handler.loadPosNegWords(positiveWords(), negativeWords());
+        TrigramIndex trigramIndex = new TrigramIndex();
+        WordIndex wordIndex = new WordIndex();
+        for (MovieReview mr : reviews) {
+            handler.getDatabase().put(mr.getId(), mr);
+            handler.getContentIndex().claim(mr.getContentHash(), mr.getId());
+            trigramIndex.add(mr.getId(), mr.getText());
+            wordIndex.add(mr.getId(), mr.getText());
+        }
+        handler.setTrigramIndex(trigramIndex);
+        handler.setWordIndex(wordIndex);
+        return handler;
+    }
+
+    /**
+     * The handler keeps its database in the working directory. Refuses to
+     * run when that directory already holds one, so a benchmark never
+     * overwrites a real database.
+     * @throws IllegalStateException if a database file exists.
+     */
+    public static void requireScratchDirectory() {
+        for (String name : DATABASE_FILES) {
+            if (new File(name).exists()) {
+                throw new IllegalStateException(new File(name).getAbsolutePath()
+                        + " exists; run the persistence benchmarks from a scratch directory,"
+                        + " e.g. benchmarks/target");
+            }
+        }
+    }
+
+    /**
+     * Deletes the database files written by a benchmark.
+     * @throws IOException if a file cannot be deleted.
+     */
+    public static void deleteDatabaseFiles() throws IOException {
+        for (String name : DATABASE_FILES) {
+            Files.deleteIfExists(Paths.get(name));
+        }
+    }
+
+    private static final String[] DATABASE_FILES = {
+        AbstractReviewHandler.DATA_FILE_NAME,
+        AbstractReviewHandler.DB_SEGMENT_FILE_NAME,
+        AbstractReviewHandler.DB_SEGMENT_FILE_NAME + ".tmp",
+        AbstractReviewHandler.TRIGRAM_FILE_NAME,
+        AbstractReviewHandler.TRIGRAM_FILE_NAME + ".tmp",
+        AbstractReviewHandler.WORD_INDEX_FILE_NAME,
+        AbstractReviewHandler.WORD_INDEX_FILE_NAME + ".tmp",
+        AbstractReviewHandler.LOG_FILE_NAME,
+        AbstractReviewHandler.LOG_ROTATED_FILE_NAME
+    };
+}
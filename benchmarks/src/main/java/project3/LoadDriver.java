@@ -0,0 +1,304 @@
+package project3;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless load driver: runs a mixed workload against a ReviewHandler and
+ * reports throughput and latency percentiles per operation.
+ * <p>
+ * One thread ingests a corpus (e.g. one written by CorpusGenerator) folder
+ * by folder with loadReviews, while query threads pick operations at random
+ * by weight. When the time is up the folder being loaded is cancelled, and
+ * the reviews it imported so far count. The weights are set with -Dmix, default
+ * searchById:40,searchBySubstring:30,searchByWords:20,deleteReview:8,saveDB:2.
+ * The database files live in the working directory, as in the app; an
+ * existing database there is loaded first and updated.
+ * <pre>
+ * java -cp benchmarks.jar project3.LoadDriver &lt;corpusDir&gt; [seconds] [queryThreads]
+ * </pre>
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class LoadDriver {
+
+    /**
+     * The operations of the query threads.
+     */
+    enum Operation {
+        SEARCH_BY_ID("searchById"),
+        SEARCH_BY_SUBSTRING("searchBySubstring"),
+        SEARCH_BY_WORDS("searchByWords"),
+        DELETE_REVIEW("deleteReview"),
+        SAVE_DB("saveDB");
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        static Operation fromLabel(String label) {
+            for (Operation operation : values()) {
+                if (operation.label.equals(label)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + label);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        private final String label;
+    }
+
+    /**
+     * Constructor.
+     * @param handler The handler under load, with its word lists loaded.
+     * @param mix Weight of each operation.
+     */
+    public LoadDriver(ReviewHandler handler, Map<Operation, Integer> mix) {
+        this.handler = handler;
+        handler.setEventSink(events);
+        this.words = Stream.concat(handler.getPosWords().stream(), handler.getNegWords().stream())
+                .filter(w -> w.length() >= 3 && w.chars().allMatch(Character::isLetter))
+                .sorted().toArray(String[]::new);
+        this.mix = new Operation[mix.values().stream().mapToInt(Integer::intValue).sum()];
+        int slot = 0;
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                this.mix[slot++] = weight.getKey();
+            }
+        }
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Runs the workload.
+     * @param corpus The review folders to ingest, in order.
+     * @param seconds How long to run.
+     * @param queryThreads Number of query threads.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void run(List<Path> corpus, int seconds, int queryThreads) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> ingest(corpus), "driver-ingest"));
+        for (int i = 0; i < queryThreads; i++) {
+            threads.add(new Thread(this::query, "driver-query-" + (i + 1)));
+        }
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        stopped = true;
+        // Cancel the folder being loaded instead of running past the end
+        threads.get(0).interrupt();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    private void ingest(List<Path> corpus) {
+        for (Path folder : corpus) {
+            if (stopped) {
+                return;
+            }
+            String name = folder.getFileName().toString();
+            String parent = folder.getParent() == null ? "" : folder.getParent().getFileName().toString();
+            int realClass = name.equals("pos") || parent.equals("pos") ? 1
+                    : name.equals("neg") || parent.equals("neg") ? 0 : 2;
+            long start = System.nanoTime();
+            handler.loadReviews(folder.toString(), realClass);
+            if (stopped) {
+                // Cancelled part way, not a whole load
+                return;
+            }
+            ingestLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private void query() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stopped) {
+            Operation operation = mix[random.nextInt(mix.length)];
+            long start = System.nanoTime();
+            try {
+                switch (operation) {
+                    case SEARCH_BY_ID:
+                        handler.searchById(randomId(random));
+                        break;
+                    case SEARCH_BY_SUBSTRING:
+                        handler.searchBySubstring(words[random.nextInt(words.length)]);
+                        break;
+                    case SEARCH_BY_WORDS:
+                        String query = words[random.nextInt(words.length)];
+                        if (random.nextBoolean()) {
+                            query += (random.nextBoolean() ? " AND " : " NOT ") + words[random.nextInt(words.length)];
+                        }
+                        handler.searchByWords(query);
+                        break;
+                    case DELETE_REVIEW:
+                        handler.deleteReview(randomId(random));
+                        break;
+                    case SAVE_DB:
+                        handler.saveDB();
+                        break;
+                }
+                latencies.get(operation).record(System.nanoTime() - start);
+            } catch (IOException | RuntimeException e) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+    }
+
+    private int randomId(ThreadLocalRandom random) {
+        return random.nextInt(Math.max(1, handler.getDatabase().maxId())) + 1;
+    }
+
+    /**
+     * Prints the throughput and latencies of the last run.
+     */
+    public void report() {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-18s %9s %10s %9s %9s %9s %9s %9s %7s%n",
+                "operation", "count", "ops/s", "mean", "p50", "p99", "p999", "max", "errors");
+        for (Operation operation : Operation.values()) {
+            print(operation.toString(), latencies.get(operation), seconds, errors.get(operation).get());
+        }
+        print("loadReviews", ingestLatencies, seconds, 0);
+        long ingested = events.getImported();
+        System.out.printf("Ingested %d reviews (%.0f reviews/s); %d reviews in the database after %.1f s%n",
+                ingested, ingested / seconds, handler.getDatabase().size(), seconds);
+        System.out.println("Handler events: " + events);
+        StageMetrics.mergeAll();
+        for (StageMetrics.Stage stage : StageMetrics.Stage.values()) {
+            System.out.println("Stage " + StageMetrics.get(stage));
+        }
+    }
+
+    private static void print(String name, LatencyHistogram histogram, double seconds, long errors) {
+        System.out.printf("%-18s %9d %10.1f %9s %9s %9s %9s %9s %7d%n", name, histogram.getCount(),
+                histogram.getCount() / seconds, LatencyHistogram.format((long) histogram.getMean()),
+                LatencyHistogram.format(histogram.getPercentile(50)),
+                LatencyHistogram.format(histogram.getPercentile(99)),
+                LatencyHistogram.format(histogram.getPercentile(99.9)),
+                LatencyHistogram.format(histogram.getMax()), errors);
+    }
+
+    /**
+     * The folders holding review files under a corpus folder, positive and
+     * negative ones interleaved so both classes arrive from the start.
+     * @param corpusDir A corpus folder with pos and neg folders, or a folder
+     * of reviews.
+     * @return The folders to ingest.
+     * @throws IOException if the corpus cannot be listed.
+     */
+    static List<Path> folders(Path corpusDir) throws IOException {
+        List<List<Path>> classes = new ArrayList<>();
+        for (String name : new String[] {"pos", "neg"}) {
+            Path classDir = corpusDir.resolve(name);
+            if (Files.isDirectory(classDir)) {
+                classes.add(reviewFolders(classDir));
+            }
+        }
+        if (classes.isEmpty()) {
+            classes.add(reviewFolders(corpusDir));
+        }
+        List<Path> folders = new ArrayList<>();
+        while (classes.stream().anyMatch(c -> !c.isEmpty())) {
+            for (List<Path> c : classes) {
+                if (!c.isEmpty()) {
+                    folders.add(c.remove(0));
+                }
+            }
+        }
+        return folders;
+    }
+
+    private static List<Path> reviewFolders(Path dir) throws IOException {
+        try (Stream<Path> listing = Files.list(dir)) {
+            List<Path> subfolders = listing.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+            // A folder of review files is ingested as a whole
+            return subfolders.isEmpty() ? new ArrayList<>(List.of(dir)) : subfolders;
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split(":");
+            weights.put(Operation.fromLabel(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Please provide command line arguments: <corpusDir> [seconds] [queryThreads]");
+            return;
+        }
+        try {
+            Path corpusDir = Paths.get(args[0]);
+            int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+            int queryThreads = args.length > 2 ? Integer.parseInt(args[2])
+                    : Runtime.getRuntime().availableProcessors();
+            Map<Operation, Integer> mix = parseMix(System.getProperty("mix", DEFAULT_MIX));
+            // Only warnings, not a line per ingested folder
+            Logger.getLogger("SentimentAnalysis").setLevel(Level.WARNING);
+
+            ReviewHandler handler = new ReviewHandler();
+            handler.loadPosNegWords(Fixtures.positiveWords(), Fixtures.negativeWords());
+            long start = System.nanoTime();
+            handler.loadDB();
+            System.out.printf("loadDB: %d reviews in %s (%s)%n", handler.getDatabase().size(),
+                    LatencyHistogram.format(System.nanoTime() - start), new File("").getAbsolutePath());
+
+            List<Path> folders = folders(corpusDir);
+            System.out.printf("Running %d s: %d folders to ingest, %d query threads, mix %s%n",
+                    seconds, folders.size(), queryThreads, mix);
+            LoadDriver driver = new LoadDriver(handler, mix);
+            driver.run(folders, seconds, queryThreads);
+            driver.report();
+
+            start = System.nanoTime();
+            handler.saveDB();
+            System.out.println("Final saveDB: " + LatencyHistogram.format(System.nanoTime() - start));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final String DEFAULT_MIX =
+            "searchById:40,searchBySubstring:30,searchByWords:20,deleteReview:8,saveDB:2";
+
+    private final ReviewHandler handler;
+    private final String[] words;
+    private final Operation[] mix;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AggregatingEventSink events = new AggregatingEventSink();
+    private final LatencyHistogram ingestLatencies = new LatencyHistogram();
+    private volatile boolean stopped;
+    private volatile long elapsedNanos;
+}
@@ -0,0 +1,46 @@
+package project3;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading both word lists and compiling them into a lexicon.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadPosNegWordsBenchmark {
+
+    @Setup
+    public void setUp() {
+        handler = new ReviewHandler();
+        positiveWords = Fixtures.positiveWords();
+        negativeWords = Fixtures.negativeWords();
+    }
+
+    @Benchmark
+    public PolarityLexicon loadPosNegWords() throws IOException {
+        handler.loadPosNegWords(positiveWords, negativeWords);
+        return handler.getLexicon();
+    }
+
+    private ReviewHandler handler;
+    private String positiveWords;
+    private String negativeWords;
+}
@@ -0,0 +1,122 @@
+package project3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading the database:
+ * <ul>
+ * <li>saveDB: one deletion made durable through the write-ahead log,</li>
+ * <li>compact: the full segment and trigram index written out,</li>
+ * <li>loadDB: a fresh handler loading that segment and index,</li>
+ * <li>readLegacy and readLegacyParallel: parsing a legacy database.txt.</li>
+ * </ul>
+ * The handler keeps its files in the working directory, so these run from
+ * a scratch directory such as benchmarks/target.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int dbSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Fixtures.requireScratchDirectory();
+        List<MovieReview> reviews = Fixtures.database(dbSize);
+        handler = Fixtures.handler(reviews);
+        handler.compact();
+
+        legacyDb = Files.createTempFile("legacy-database", ".txt");
+        try (BufferedWriter out = Files.newBufferedWriter(legacyDb, StandardCharsets.UTF_8)) {
+            for (MovieReview mr : reviews) {
+                out.write(mr.getId() + " @ " + mr.getFilePath() + " @ " + mr.getRealScore()
+                        + " @ " + mr.getPredictedScore());
+                out.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteDatabaseFiles();
+        Files.deleteIfExists(legacyDb);
+    }
+
+    /**
+     * Puts back the review the last saveDB call deleted, so every call
+     * deletes a review that exists.
+     */
+    @Setup(Level.Invocation)
+    public void restoreDeleted() {
+        if (deleted != null) {
+            handler.getDatabase().put(deleted.getId(), deleted);
+            handler.getTrigramIndex().add(deleted.getId(), deleted.getText());
+            handler.getWordIndex().add(deleted.getId(), deleted.getText());
+            handler.getContentIndex().claim(deleted.getContentHash(), deleted.getId());
+            deleted = null;
+        }
+    }
+
+    @Benchmark
+    public void saveDB() throws IOException {
+        nextId = nextId % dbSize + 1;
+        deleted = handler.searchById(nextId);
+        handler.deleteReview(nextId);
+        handler.saveDB();
+    }
+
+    @Benchmark
+    public void compact() throws IOException {
+        handler.compact();
+    }
+
+    @Benchmark
+    public ReviewHandler loadDB() throws IOException {
+        ReviewHandler loaded = new ReviewHandler();
+        loaded.loadDB();
+        return loaded;
+    }
+
+    @Benchmark
+    public List<MovieReview> readLegacy() throws IOException {
+        return ReviewSegment.readLegacy(legacyDb.toString());
+    }
+
+    @Benchmark
+    public List<MovieReview> readLegacyParallel() throws IOException {
+        return ReviewSegment.readLegacyParallel(legacyDb.toString(), ForkJoinPool.commonPool());
+    }
+
+    private ReviewHandler handler;
+    private Path legacyDb;
+    private MovieReview deleted;
+    private int nextId;
+}
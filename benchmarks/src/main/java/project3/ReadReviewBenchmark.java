@@ -0,0 +1,70 @@
+package project3;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading one review file: the FileChannel reader behind readReview against
+ * the original Scanner reader.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadReviewBenchmark {
+
+    @Param({"short", "medium", "long"})
+    public String reviewLength;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Path> files = Fixtures.reviewFiles(reviewLength, FILES);
+        paths = new String[files.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = files.get(i).toString();
+        }
+        handler = new ReviewHandler();
+    }
+
+    @Benchmark
+    public MovieReview readReview() throws IOException {
+        return handler.readReview(nextPath(), 1);
+    }
+
+    @Benchmark
+    public String readTextLegacy() throws IOException {
+        return ReviewReader.readTextLegacy(nextPath());
+    }
+
+    private String nextPath() {
+        next = (next + 1) % paths.length;
+        return paths[next];
+    }
+
+    /**
+     * Files per length bucket, read in turn.
+     */
+    private static final int FILES = 16;
+
+    private String[] paths;
+    private int next;
+    private ReviewHandler handler;
+}
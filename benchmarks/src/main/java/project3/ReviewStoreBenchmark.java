@@ -0,0 +1,86 @@
+package project3;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contention on the review store: 1 to 8 threads doing searches by id with
+ * one insert or delete in ten, against a single-lock store (one stripe) and
+ * a striped one.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewStoreBenchmark {
+
+    @Param({"1", "64"})
+    public int stripes;
+
+    @Setup
+    public void setUp() {
+        store = new StripedReviewStore(stripes);
+        review = new MovieReview(1, "review.txt", "A review.", ReviewScore.POSITIVE, ReviewScore.POSITIVE);
+        for (int id = 1; id <= REVIEWS; id++) {
+            store.put(id, review);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MovieReview oneThread() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public MovieReview twoThreads() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MovieReview fourThreads() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MovieReview eightThreads() {
+        return operation();
+    }
+
+    private MovieReview operation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = random.nextInt(REVIEWS) + 1;
+        int dice = random.nextInt(10);
+        if (dice == 0) {
+            return store.put(id, review);
+        } else if (dice == 1) {
+            return store.remove(id);
+        }
+        return store.get(id);
+    }
+
+    private static final int REVIEWS = 100_000;
+
+    private ReviewStore store;
+    private MovieReview review;
+}
@@ -0,0 +1,101 @@
+package project3;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Insert throughput of the review store: 1 to 8 threads each putting
+ * INSERTS reviews under fresh ids into an empty store, against a
+ * single-lock store (one stripe) and a striped one. Every iteration starts
+ * from an empty store, so the store does not grow without bound; the score
+ * is the time for one thread's batch, and the inserts per second are
+ * threads * INSERTS / score.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = ReviewStoreInsertBenchmark.INSERTS)
+@Measurement(iterations = 10, batchSize = ReviewStoreInsertBenchmark.INSERTS)
+@Fork(1)
+public class ReviewStoreInsertBenchmark {
+
+    @Param({"1", "64"})
+    public int stripes;
+
+    @Setup
+    public void setUp() {
+        review = new MovieReview(1, "review.txt", "A review.", ReviewScore.POSITIVE, ReviewScore.POSITIVE);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyStore() {
+        store = new StripedReviewStore(stripes);
+    }
+
+    /**
+     * The ids a thread inserts: a range of its own, so that handing out
+     * ids is not a point of contention itself.
+     */
+    @State(Scope.Thread)
+    public static class Ids {
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams params) {
+            next = params.getThreadIndex() * INSERTS;
+        }
+
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MovieReview oneThread(Ids ids) {
+        return insert(ids);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public MovieReview twoThreads(Ids ids) {
+        return insert(ids);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MovieReview fourThreads(Ids ids) {
+        return insert(ids);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MovieReview eightThreads(Ids ids) {
+        return insert(ids);
+    }
+
+    private MovieReview insert(Ids ids) {
+        return store.put(++ids.next, review);
+    }
+
+    /**
+     * Reviews each thread inserts per iteration.
+     */
+    static final int INSERTS = 200_000;
+
+    private ReviewStore store;
+    private MovieReview review;
+}
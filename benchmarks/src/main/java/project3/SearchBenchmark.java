@@ -0,0 +1,59 @@
+package project3;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Searching an in-memory database by id and by substring. "at" is too
+ * short for the trigram index and scans every review; the longer
+ * substrings are narrowed by the index first.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int dbSize;
+
+    @Param({"at", "brilliant", "worst movie"})
+    public String substring;
+
+    @Setup
+    public void setUp() throws IOException {
+        handler = Fixtures.handler(Fixtures.database(dbSize));
+    }
+
+    @Benchmark
+    public List<MovieReview> searchBySubstring() {
+        return handler.searchBySubstring(substring);
+    }
+
+    @Benchmark
+    public MovieReview searchById() {
+        // Ids run from 1 to dbSize, so every lookup finds a review
+        nextId = nextId % dbSize + 1;
+        return handler.searchById(nextId);
+    }
+
+    private ReviewHandler handler;
+    private int nextId;
+}
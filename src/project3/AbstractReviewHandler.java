@@ -3,12 +3,13 @@ package project3;
 import java.io.Closeable;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
     @author Stanley
@@ -20,9 +21,14 @@ public abstract class AbstractReviewHandler {
      * Default constructor.
      */
     public AbstractReviewHandler() {
-        getDatabase = new HashMap<>();
+        getDatabase = new StripedReviewStore();
         posWords = new HashSet<String>();
         negWords = new HashSet<String>();
+        lexicon = PolarityLexicon.EMPTY;
+        trigramIndex = new TrigramIndex();
+        wordIndex = new WordIndex();
+        contentIndex = new ContentIndex();
+        classificationMemo = new ClassificationMemo(MEMO_MAX_ENTRIES);
     }
 
     /**
@@ -42,10 +48,11 @@ public abstract class AbstractReviewHandler {
     }
 
     /**
-     * Getter method for accessing the database.
+     * Getter method for accessing the database. It may be used from several
+     * threads at once.
      * @return database
      */
-    public Map<Integer, MovieReview> getDatabase() {
+    public ReviewStore getDatabase() {
         return getDatabase;
     }
 
@@ -64,6 +71,141 @@ public abstract class AbstractReviewHandler {
     public HashSet<String> getNegWords() {
         return negWords;
     }
+
+    /**
+     * Getter method for accessing the trigram index over the review text.
+     * @return trigramIndex
+     */
+    public TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    /**
+     * Getter method for accessing the word index over the review text.
+     * @return wordIndex
+     */
+    public WordIndex getWordIndex() {
+        return wordIndex;
+    }
+
+    /**
+     * Replaces the word index, e.g. with a rebuilt one.
+     * @param wordIndex The new index.
+     */
+    protected void setWordIndex(WordIndex wordIndex) {
+        this.wordIndex = wordIndex;
+    }
+
+    /**
+     * Replaces the trigram index, e.g. with one read from disk.
+     * @param trigramIndex The new index.
+     */
+    protected void setTrigramIndex(TrigramIndex trigramIndex) {
+        this.trigramIndex = trigramIndex;
+    }
+
+    /**
+     * Getter method for accessing the index of review content fingerprints.
+     * @return contentIndex
+     */
+    public ContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
+    /**
+     * Getter method for accessing the remembered classifications.
+     * @return classificationMemo
+     */
+    public ClassificationMemo getClassificationMemo() {
+        return classificationMemo;
+    }
+
+    /**
+     * Whether re-imported reviews whose text is already in the database are
+     * skipped.
+     * @return skipDuplicates
+     */
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+
+    /**
+     * Sets whether re-imported reviews whose text is already in the
+     * database are skipped (the default) or stored again under a new id.
+     * @param skipDuplicates true to skip duplicates.
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    /**
+     * Getter method for accessing the text cache used in lazy text mode.
+     * @return textCache, or null if review text is kept in memory
+     */
+    public ReviewTextCache getTextCache() {
+        return textCache;
+    }
+
+    /**
+     * Switches to lazy text mode: reviews keep only the location of their
+     * text, which is fetched on demand through a cache holding at most
+     * maxCachedChars characters. Must be called before loadDB.
+     * @param maxCachedChars The character budget of the text cache.
+     */
+    public void enableLazyText(long maxCachedChars) {
+        if (textArena != null) {
+            throw new IllegalStateException("Arena mode is enabled");
+        }
+        textCache = new ReviewTextCache(DB_SEGMENT_FILE_NAME, maxCachedChars);
+    }
+
+    /**
+     * Getter method for accessing the arena holding review text and paths.
+     * @return textArena, or null if reviews keep their own Strings
+     */
+    public TextArena getTextArena() {
+        return textArena;
+    }
+
+    /**
+     * Switches to arena mode: once classified, the text and file path of
+     * each review move into a TextArena as UTF-8 and the review only keeps
+     * offsets into it. Cannot be combined with lazy text mode. Must be
+     * called before loadDB.
+     */
+    public void enableTextArena() {
+        if (textCache != null) {
+            throw new IllegalStateException("Lazy text mode is enabled");
+        }
+        textArena = new TextArena();
+    }
+
+    /**
+     * Getter method for accessing the sink that receives what the handler
+     * reports.
+     * @return eventSink
+     */
+    public ReviewEventSink getEventSink() {
+        return eventSink;
+    }
+
+    /**
+     * Sets where the handler reports imports, deletions, empty searches and
+     * errors, e.g. the GUI's text area, a console or nowhere. Defaults to
+     * ReviewEventSink.NONE.
+     * @param eventSink The sink.
+     */
+    public void setEventSink(ReviewEventSink eventSink) {
+        this.eventSink = Objects.requireNonNull(eventSink);
+    }
+
+    /**
+     * Getter method for accessing the compiled lexicon shared by all classifiers.
+     * @return lexicon
+     */
+    public PolarityLexicon getLexicon() {
+        return lexicon;
+    }
     
     
     /**
@@ -88,7 +230,7 @@ public abstract class AbstractReviewHandler {
         if(dictionary.size() == 0){
             throw new IOException("File " + fileName + " is empty");
         }
-        System.out.println("Hash set is of size " + dictionary.size());
+        log.fine("Hash set is of size " + dictionary.size());
     }
     
 
@@ -126,6 +268,15 @@ public abstract class AbstractReviewHandler {
     public abstract ReviewScore classifyReview(MovieReview review);
     
 
+    /**
+     * Rescores every review in the database with the current lexicon, e.g.
+     * after the word lists changed.
+     * @param progress Receives progress while rescoring, or null.
+     * @return What changed.
+     */
+    public abstract ReclassifyStats reclassifyAll(ReclassifyStats.Progress progress);
+
+
     /**
      * Deletes a review from the database, given its id.
      * @param id The id value of the review.
@@ -152,26 +303,49 @@ public abstract class AbstractReviewHandler {
     }
     
     /**
-     * Methods that loads the positive and negative words into the HashSets
+     * Methods that loads the positive and negative words into new HashSets
+     * and compiles them into a new lexicon. The old sets and lexicon are
+     * replaced, never modified, so it can be called again while reviews are
+     * being classified; a failed load keeps the old ones.
      * @param posFilePath
      * @param negFilePath
      * @throws IOException 
      */
     public void loadPosNegWords(String posFilePath, String negFilePath) throws IOException {
-        readInWords(posFilePath, posWords);
-        readInWords(negFilePath, negWords);
+        HashSet<String> pos = new HashSet<>();
+        HashSet<String> neg = new HashSet<>();
+        readInWords(posFilePath, pos);
+        readInWords(negFilePath, neg);
+        PolarityLexicon built = PolarityLexicon.build(pos, neg);
+        posWords = pos;
+        negWords = neg;
+        lexicon = built;
+    }
+
+    /**
+     * Reloads the positive and negative words whenever either file changes.
+     * @param posFilePath
+     * @param negFilePath
+     * @param onReload Called with each new lexicon, or null.
+     * @return The watcher; closing it stops the reloads.
+     * @throws IOException if the files cannot be watched.
+     */
+    public LexiconWatcher watchPosNegWords(String posFilePath, String negFilePath,
+            Consumer<PolarityLexicon> onReload) throws IOException {
+        return new LexiconWatcher(this, posFilePath, negFilePath, onReload);
     }
     
 
     /**
-     * Saves the database in the working directory as a text file (database.txt)
+     * Saves the database in the working directory (database.bin and its
+     * write-ahead log database.wal)
      * @throws java.io.IOException
      */
     public abstract void saveDB() throws IOException;
     
 
     /**
-     * Loads review database from a file into the HashMap.
+     * Loads review database from a file into the review store.
      * @throws java.io.IOException
      */
     public abstract void loadDB() throws IOException;
@@ -194,6 +368,17 @@ public abstract class AbstractReviewHandler {
     public abstract List<MovieReview> searchBySubstring(String substring);
 
 
+    /**
+     * Searches the review database by words. Words can be combined with AND,
+     * OR and NOT, grouped with parentheses, and "quoted phrases" must appear
+     * in that order with nothing in between.
+     * @param query The query, e.g. boring AND acting NOT plot.
+     * @return A list of review objects matching the query.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public abstract List<MovieReview> searchByWords(String query);
+
+
     /**
      * An integer counter to be used as the review ID. This counter increases
      * by 1 every time a new review is loaded.
@@ -201,15 +386,92 @@ public abstract class AbstractReviewHandler {
     private static int reviewIdCounter = 0;
     
     /**
-     * A map of <id, review> pairs.
+     * The reviews by id, shared by the loading threads and the GUI.
      */
-    private Map<Integer, MovieReview> getDatabase;
+    private final ReviewStore getDatabase;
     
-    private HashSet<String> posWords;
-    private HashSet<String> negWords;
+    private volatile HashSet<String> posWords;
+    private volatile HashSet<String> negWords;
+
+    /**
+     * The positive and negative words compiled for single probe lookups;
+     * replaced as a whole when the word lists are reloaded.
+     */
+    private volatile PolarityLexicon lexicon;
+
+    /**
+     * Trigram index kept in step with the database, used by searchBySubstring.
+     */
+    private volatile TrigramIndex trigramIndex;
+
+    /**
+     * Positional word index kept in step with the database, used by
+     * searchByWords.
+     */
+    private volatile WordIndex wordIndex;
+
+    /**
+     * Fingerprint of each distinct review text, to detect re-imports.
+     */
+    private final ContentIndex contentIndex;
+
+    /**
+     * Classification of each review text under the current lexicon.
+     */
+    private final ClassificationMemo classificationMemo;
+
+    private volatile boolean skipDuplicates = true;
+
+    /**
+     * Cache of review text in lazy text mode, null otherwise.
+     */
+    private ReviewTextCache textCache;
+
+    /**
+     * Arena holding review text and paths in arena mode, null otherwise.
+     */
+    private TextArena textArena;
+
+    /**
+     * Receives what the handler reports.
+     */
+    private volatile ReviewEventSink eventSink = ReviewEventSink.NONE;
     
+    /**
+     * Maximum number of texts whose classification is remembered.
+     */
+    private static final int MEMO_MAX_ENTRIES = 4 * 1024 * 1024;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+
     /**
      * The file name of where the database is going to be saved.
      */
     protected static final String DATA_FILE_NAME = "database.txt";
+
+    /**
+     * The file name of the binary database, which replaces database.txt.
+     */
+    protected static final String DB_SEGMENT_FILE_NAME = "database.bin";
+
+    /**
+     * The file name of the write-ahead log of changes since the last
+     * compaction.
+     */
+    protected static final String LOG_FILE_NAME = "database.wal";
+
+    /**
+     * The file name the log is moved to while it is being compacted.
+     */
+    protected static final String LOG_ROTATED_FILE_NAME = "database.wal.old";
+
+    /**
+     * The file name of the persisted trigram index.
+     */
+    protected static final String TRIGRAM_FILE_NAME = "database.tri";
+
+    /**
+     * The file name of the persisted word index.
+     */
+    protected static final String WORD_INDEX_FILE_NAME = "database.wix";
 }
@@ -0,0 +1,153 @@
+package project3;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts review handler events instead of showing them, for headless runs
+ * that only need the totals. Cheap enough to be called from every worker
+ * thread.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class AggregatingEventSink implements ReviewEventSink {
+
+    @Override
+    public void reviewImported(MovieReview review) {
+        imported.increment();
+        if (review.getRealScore() != ReviewScore.UNKNOWN) {
+            labelled.increment();
+            if (review.getRealScore() == review.getPredictedScore()) {
+                correct.increment();
+            }
+        }
+    }
+
+    @Override
+    public void duplicateSkipped(MovieReview review, MovieReview original) {
+        duplicates.increment();
+    }
+
+    @Override
+    public void reviewsImported(ImportSummary summary) {
+        imported.add(summary.getImported());
+        duplicates.add(summary.getDuplicates());
+        if (summary.isLabelled()) {
+            labelled.add(summary.getImported());
+            correct.add(summary.getCorrect());
+        }
+    }
+
+    @Override
+    public void loadCancelled(String path, long imported) {
+        this.imported.add(imported);
+    }
+
+    @Override
+    public void reviewDeleted(int id) {
+        deleted.increment();
+    }
+
+    @Override
+    public void reviewNotFound(int id) {
+        notFound.increment();
+    }
+
+    @Override
+    public void noReviewFound(int id) {
+        emptySearches.increment();
+    }
+
+    @Override
+    public void noReviewsFound(String query) {
+        emptySearches.increment();
+    }
+
+    @Override
+    public void error(String message) {
+        errors.increment();
+        lastError = message;
+    }
+
+    /**
+     * Getter method for the number of imported reviews.
+     * @return imported
+     */
+    public long getImported() {
+        return imported.sum();
+    }
+
+    /**
+     * Getter method for the number of reviews skipped as duplicates.
+     * @return duplicates
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Getter method for the share of imported reviews of known class that
+     * were classified correctly.
+     * @return accuracy in percent, or NaN if no class was known
+     */
+    public double getAccuracy() {
+        return (double) correct.sum() / (double) labelled.sum() * 100;
+    }
+
+    /**
+     * Getter method for the number of deleted reviews.
+     * @return deleted
+     */
+    public long getDeleted() {
+        return deleted.sum();
+    }
+
+    /**
+     * Getter method for the number of deletions of missing ids.
+     * @return notFound
+     */
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    /**
+     * Getter method for the number of searches without results.
+     * @return emptySearches
+     */
+    public long getEmptySearches() {
+        return emptySearches.sum();
+    }
+
+    /**
+     * Getter method for the number of failed operations.
+     * @return errors
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Getter method for the message of the latest failure.
+     * @return lastError, or null if nothing failed
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("imported=%d duplicates=%d accuracy=%.2f%% deleted=%d notFound=%d"
+                + " emptySearches=%d errors=%d", getImported(), getDuplicates(), getAccuracy(),
+                getDeleted(), getNotFound(), getEmptySearches(), getErrors());
+    }
+
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder labelled = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder emptySearches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile String lastError;
+}
@@ -0,0 +1,86 @@
+package project3;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the classification of each review text, keyed by its content
+ * fingerprint and the version of the lexicon that scored it, so that a text
+ * seen before is not scored again until the word lists change. Holds at most
+ * a fixed number of texts; once full, new results are simply not kept.
+ * Safe for concurrent use.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ClassificationMemo {
+
+    /**
+     * Constructor.
+     * @param maxEntries Maximum number of texts remembered.
+     */
+    public ClassificationMemo(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Looks up a remembered classification.
+     * @param contentHash The fingerprint of the review text.
+     * @param lexiconVersion The version of the lexicon in use.
+     * @return The score, or null if the text was not scored with this
+     * version of the lexicon.
+     */
+    public ReviewScore get(long contentHash, int lexiconVersion) {
+        Long entry = scores.get(contentHash);
+        if (entry == null || (int) (entry >>> 8) != lexiconVersion) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return ReviewScore.fromInteger((int) (entry & 0xFF));
+    }
+
+    /**
+     * Remembers a classification, replacing one made with another lexicon
+     * version.
+     * @param contentHash The fingerprint of the review text.
+     * @param lexiconVersion The version of the lexicon that scored it.
+     * @param score The score.
+     */
+    public void put(long contentHash, int lexiconVersion, ReviewScore score) {
+        // Version and score code packed into one value
+        long entry = (long) lexiconVersion << 8 | score.toInteger();
+        if (scores.size() < maxEntries || scores.containsKey(contentHash)) {
+            scores.put(contentHash, entry);
+        }
+    }
+
+    /**
+     * Forgets every remembered classification, so each review is scored
+     * again on its next lookup.
+     */
+    public void clear() {
+        scores.clear();
+    }
+
+    /**
+     * Getter method for the number of lookups answered from the memo.
+     * @return hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Getter method for the number of lookups that had to be scored.
+     * @return misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<Long, Long> scores = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+}
@@ -0,0 +1,133 @@
+package project3;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs the commands of the GUI on a small shared pool instead of a new
+ * thread per click. Commands beyond the pool size wait in a queue. A
+ * command is known by its name, and a second command of the same name is
+ * rejected while the first is queued or running, so clicking Confirm twice
+ * does not load a folder twice.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class CommandRunner {
+
+    /**
+     * The work of a command.
+     */
+    public interface Command {
+        /**
+         * Runs the command.
+         * @param task The task of the command, to report progress to and to
+         * check for cancellation.
+         * @throws Exception if the command fails; the failure is logged.
+         */
+        void run(CommandTask task) throws Exception;
+    }
+
+    /**
+     * Constructor.
+     * @param threads Number of commands that run at the same time.
+     */
+    public CommandRunner(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "command-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues a command unless one of the same name is queued or running.
+     * @param name Name of the command.
+     * @param unit What the command counts for its progress, e.g. "files",
+     * or null if it reports none.
+     * @param cancellable Whether the command may be cancelled.
+     * @param command The work.
+     * @return The task of the command, or null if it was rejected.
+     */
+    public CommandTask submit(String name, String unit, boolean cancellable, Command command) {
+        CommandTask task = new CommandTask(name, unit, cancellable);
+        if (active.putIfAbsent(name, task) != null) {
+            return null;
+        }
+        FutureTask<Void> future = new FutureTask<Void>(() -> {
+            run(task, command);
+            return null;
+        }) {
+            @Override
+            protected void done() {
+                // Cancelled before it started; a running command ends in run
+                if (task.end(true)) {
+                    active.remove(name, task);
+                }
+            }
+        };
+        task.setFuture(future);
+        executor.execute(future);
+        return task;
+    }
+
+    private void run(CommandTask task, Command command) {
+        if (!task.start()) {
+            return;
+        }
+        try {
+            command.run(task);
+        } catch (InterruptedException e) {
+            log.info(task.getName() + " cancelled");
+        } catch (Exception e) {
+            log.warning(task.getName() + " failed: " + e);
+        } finally {
+            task.end(false);
+            active.remove(task.getName(), task);
+        }
+    }
+
+    /**
+     * The command that started last among those running, e.g. to show its
+     * progress.
+     * @return The task, or null if none is running.
+     */
+    public CommandTask getCurrent() {
+        CommandTask current = null;
+        for (CommandTask task : active.values()) {
+            if (task.isRunning() && (current == null || task.getElapsedNanos() < current.getElapsedNanos())) {
+                current = task;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Cancels every command that may be cancelled, e.g. before the app
+     * exits. Does not wait for them to stop.
+     */
+    public void cancelAll() {
+        active.values().forEach(CommandTask::cancel);
+    }
+
+    /**
+     * Stops taking commands and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final ExecutorService executor;
+    private final Map<String, CommandTask> active = new ConcurrentHashMap<>();
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
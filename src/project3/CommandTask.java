@@ -0,0 +1,224 @@
+package project3;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A GUI command submitted to a CommandRunner: its state, its progress and
+ * the means to cancel it. A command that reports progress calls update as
+ * it goes; the GUI polls the task for its status line.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class CommandTask implements IngestStats.Progress, ReclassifyStats.Progress {
+
+    /**
+     * Constructor.
+     * @param name Name of the command; one task per name runs at a time.
+     * @param unit What the command counts, e.g. "files", or null if it
+     * reports no progress.
+     * @param cancellable Whether the command may be cancelled.
+     */
+    CommandTask(String name, String unit, boolean cancellable) {
+        this.name = name;
+        this.unit = unit;
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * Getter method for the name of the command.
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the command may be cancelled.
+     * @return cancellable
+     */
+    public boolean isCancellable() {
+        return cancellable;
+    }
+
+    /**
+     * Records how far the command has got. Safe to call from any thread.
+     * @param done Items done so far.
+     * @param total Items to do, or -1 while not known.
+     */
+    @Override
+    public void update(long done, long total) {
+        this.done = done;
+        this.total = total;
+    }
+
+    /**
+     * Getter method for the items done so far.
+     * @return done
+     */
+    public long getDone() {
+        return done;
+    }
+
+    /**
+     * Getter method for the items to do.
+     * @return total, or -1 if not known
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Items done per second since the command started.
+     * @return throughput
+     */
+    public double getItemsPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed == 0 ? 0 : done * 1e9 / elapsed;
+    }
+
+    /**
+     * Estimated time left at the throughput so far.
+     * @return time left in nanoseconds, or -1 if it cannot be estimated
+     */
+    public long getRemainingNanos() {
+        long left = total - done;
+        double rate = getItemsPerSecond();
+        return total < 0 || left < 0 || rate == 0 ? -1 : (long) (left / rate * 1e9);
+    }
+
+    /**
+     * Time since the command started, or its running time once it ended.
+     * @return elapsed time in nanoseconds, 0 while it is queued
+     */
+    public long getElapsedNanos() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - start;
+    }
+
+    /**
+     * Whether the command is running, as opposed to queued or ended.
+     * @return running
+     */
+    public boolean isRunning() {
+        return state.get() == RUNNING;
+    }
+
+    /**
+     * Whether the command has ended, or was cancelled before it started.
+     * @return done
+     */
+    public boolean isDone() {
+        return state.get() == ENDED;
+    }
+
+    /**
+     * Whether the command was asked to stop.
+     * @return cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Asks the command to stop: a queued command will not start, a running
+     * one is interrupted and stops at its next check. Does nothing for
+     * commands that cannot be cancelled.
+     * @return true if the request was made
+     */
+    public boolean cancel() {
+        if (!cancellable || isDone()) {
+            return false;
+        }
+        cancelled = true;
+        future.cancel(true);
+        return true;
+    }
+
+    /**
+     * One line describing the command, e.g.
+     * "Load reviews: 12000 of 50000 files, 2400 files/s, ETA 0:16".
+     * @return The status.
+     */
+    public String getStatus() {
+        StringBuilder status = new StringBuilder(name).append(": ");
+        if (state.get() == QUEUED) {
+            status.append("queued");
+        } else if (unit == null) {
+            status.append(String.format("%.1f s", getElapsedNanos() / 1e9));
+        } else {
+            status.append(done);
+            if (total >= 0) {
+                status.append(" of ").append(total);
+            }
+            status.append(' ').append(unit).append(String.format(", %.0f %s/s", getItemsPerSecond(), unit));
+            long remaining = getRemainingNanos();
+            if (remaining >= 0) {
+                long seconds = remaining / 1000000000L;
+                status.append(String.format(", ETA %d:%02d", seconds / 60, seconds % 60));
+            }
+        }
+        if (cancelled && !isDone()) {
+            status.append(" (cancelling)");
+        }
+        return status.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getStatus();
+    }
+
+    /**
+     * Sets the future running the command, before it is queued.
+     */
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Marks the command as started, unless it was cancelled while queued.
+     * @return true if the command should run
+     */
+    boolean start() {
+        if (!state.compareAndSet(QUEUED, RUNNING)) {
+            return false;
+        }
+        startNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Marks the command as ended.
+     * @param ifQueued Only if it never started, i.e. was cancelled in the
+     * queue.
+     * @return true if this call ended it
+     */
+    boolean end(boolean ifQueued) {
+        if (ifQueued ? state.compareAndSet(QUEUED, ENDED) : state.compareAndSet(RUNNING, ENDED)) {
+            endNanos = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int ENDED = 2;
+
+    private final String name;
+    private final String unit;
+    private final boolean cancellable;
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    private volatile Future<?> future;
+    private volatile boolean cancelled;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile long done;
+    private volatile long total = -1;
+}
@@ -0,0 +1,28 @@
+package project3;
+
+import java.io.PrintStream;
+
+/**
+ * Prints review handler events to a console, e.g. for batch runs.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ConsoleEventSink extends TextEventSink {
+
+    /**
+     * Constructor.
+     * @param out The stream the events are printed to.
+     */
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    protected void print(String text) {
+        out.print(text);
+        out.flush();
+    }
+
+    private final PrintStream out;
+}
@@ -0,0 +1,42 @@
+package project3;
+
+/**
+ * 64-bit fingerprint of review text, used to recognise identical reviews
+ * without comparing their text. FNV-1a over the UTF-16 characters followed
+ * by the MurmurHash3 finalizer, so that texts differing in a single
+ * character get unrelated fingerprints. Equal fingerprints make equal text
+ * very likely, not certain; callers that must be exact compare the text.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Fingerprints a text.
+     * @param text The text.
+     * @return The 64-bit fingerprint.
+     */
+    public static long of(String text) {
+        long h = OFFSET_BASIS;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            h ^= text.charAt(i);
+            h *= PRIME;
+        }
+        h ^= n;
+        // MurmurHash3 fmix64
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+}
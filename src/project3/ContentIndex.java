@@ -0,0 +1,57 @@
+package project3;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from content fingerprint to the id of the first review stored with
+ * that content, used to detect re-imported reviews. Safe for concurrent
+ * use.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ContentIndex {
+
+    /**
+     * Records a review under its fingerprint unless another review already
+     * holds it.
+     * @param contentHash The fingerprint of the review text.
+     * @param id The id of the review.
+     * @return The id of the review already holding the fingerprint, or -1
+     * if this review now holds it.
+     */
+    public int claim(long contentHash, int id) {
+        Integer holder = ids.putIfAbsent(contentHash, id);
+        return holder == null ? -1 : holder;
+    }
+
+    /**
+     * Hands a fingerprint over from a review that no longer exists.
+     * @param contentHash The fingerprint.
+     * @param staleId The id of the review that held it.
+     * @param id The id of the review taking it over.
+     * @return true if the fingerprint was still held by staleId.
+     */
+    public boolean replace(long contentHash, int staleId, int id) {
+        return ids.replace(contentHash, staleId, id);
+    }
+
+    /**
+     * Forgets a fingerprint if the given review holds it.
+     * @param contentHash The fingerprint.
+     * @param id The id of the review.
+     */
+    public void release(long contentHash, int id) {
+        ids.remove(contentHash, id);
+    }
+
+    /**
+     * Getter method for the number of fingerprints.
+     * @return size
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private final ConcurrentHashMap<Long, Integer> ids = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,96 @@
+package project3;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * The .txt files of a directory tree. Each directory is listed lazily
+ * through a DirectoryStream, so the first entry is available before the
+ * listing is complete and memory grows with the depth of the tree, not with
+ * the number of files. Subdirectories are descended into as they are met;
+ * symbolic links to directories are not followed.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class DirectoryReviewSource implements ReviewSource {
+
+    /**
+     * Constructor.
+     * @param directory The root of the tree to list.
+     * @throws IOException if the directory cannot be opened.
+     */
+    public DirectoryReviewSource(Path directory) throws IOException {
+        descend(directory);
+    }
+
+    /**
+     * Returns the next .txt file.
+     * @return The entry of the file, or null after the last one.
+     * @throws IOException if a directory cannot be read.
+     */
+    @Override
+    public Entry next() throws IOException {
+        while (!open.isEmpty()) {
+            Path file;
+            try {
+                Iterator<Path> files = open.peek().iterator;
+                if (!files.hasNext()) {
+                    open.pop().stream.close();
+                    continue;
+                }
+                file = files.next();
+            } catch (DirectoryIteratorException e) {
+                throw e.getCause();
+            }
+            if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+                descend(file);
+            } else if (file.toString().endsWith(".txt") && Files.isRegularFile(file)) {
+                return new Entry(file.toString(), null);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        while (!open.isEmpty()) {
+            try {
+                open.pop().stream.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void descend(Path directory) throws IOException {
+        open.push(new Listing(Files.newDirectoryStream(directory)));
+    }
+
+    /**
+     * A directory being listed.
+     */
+    private static final class Listing {
+
+        Listing(DirectoryStream<Path> stream) {
+            this.stream = stream;
+            this.iterator = stream.iterator();
+        }
+
+        final DirectoryStream<Path> stream;
+        final Iterator<Path> iterator;
+    }
+
+    private final Deque<Listing> open = new ArrayDeque<>();
+}
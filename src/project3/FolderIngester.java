@@ -0,0 +1,57 @@
+package project3;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Strategy for loading a collection of reviews (a directory tree or an
+ * archive): read, classify and hand each review to a sink.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface FolderIngester {
+
+    /**
+     * Turns a review entry into a review object.
+     */
+    interface ReviewReaderStage {
+        /**
+         * Reads a review.
+         * @param entry The review entry.
+         * @return The review.
+         * @throws IOException if the review cannot be read.
+         */
+        MovieReview read(ReviewSource.Entry entry) throws IOException;
+    }
+
+    /**
+     * Classifies a review.
+     */
+    interface ClassifierStage {
+        /**
+         * Classifies a review.
+         * @param review The review.
+         * @return The predicted score.
+         */
+        ReviewScore classify(MovieReview review);
+    }
+
+    /**
+     * Loads every entry of a source. The source is not closed.
+     * @param source The review entries.
+     * @param reader Reads an entry into a review.
+     * @param classifier Classifies a review.
+     * @param sink Receives each classified review, one at a time.
+     * @return The statistics of this run.
+     * @throws IOException if the source cannot be read.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    IngestStats run(ReviewSource source, ReviewReaderStage reader, ClassifierStage classifier,
+            Consumer<MovieReview> sink) throws IOException, InterruptedException;
+
+    /**
+     * Releases the threads of the ingester. It cannot be run afterwards.
+     */
+    void shutdown();
+}
@@ -0,0 +1,106 @@
+package project3;
+
+/**
+ * The result of loading a folder tree or archive of reviews.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ImportSummary {
+
+    /**
+     * Constructor.
+     * @param path The folder or archive.
+     * @param archive Whether it was an archive.
+     * @param imported Number of reviews added to the database.
+     * @param duplicates Number of reviews skipped as duplicates.
+     * @param correct Number of imported reviews classified as their real
+     * class.
+     * @param labelled Whether the real class of the reviews is known.
+     * @param stats The statistics of the ingestion run.
+     */
+    ImportSummary(String path, boolean archive, long imported, long duplicates, long correct,
+            boolean labelled, IngestStats stats) {
+        this.path = path;
+        this.archive = archive;
+        this.imported = imported;
+        this.duplicates = duplicates;
+        this.correct = correct;
+        this.labelled = labelled;
+        this.stats = stats;
+    }
+
+    /**
+     * Getter method for the folder or archive.
+     * @return path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Whether the reviews came from an archive rather than a folder.
+     * @return archive
+     */
+    public boolean isArchive() {
+        return archive;
+    }
+
+    /**
+     * Getter method for the number of reviews added to the database.
+     * @return imported
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Getter method for the number of reviews skipped as duplicates.
+     * @return duplicates
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Getter method for the number of imported reviews classified as their
+     * real class.
+     * @return correct
+     */
+    public long getCorrect() {
+        return correct;
+    }
+
+    /**
+     * Whether the real class of the reviews is known, i.e. whether the
+     * accuracy means anything.
+     * @return labelled
+     */
+    public boolean isLabelled() {
+        return labelled;
+    }
+
+    /**
+     * Getter method for the share of imported reviews classified correctly.
+     * @return accuracy in percent
+     */
+    public double getAccuracy() {
+        return (double) correct / (double) imported * 100;
+    }
+
+    /**
+     * Getter method for the statistics of the ingestion run.
+     * @return stats
+     */
+    public IngestStats getStats() {
+        return stats;
+    }
+
+    private final String path;
+    private final boolean archive;
+    private final long imported;
+    private final long duplicates;
+    private final long correct;
+    private final boolean labelled;
+    private final IngestStats stats;
+}
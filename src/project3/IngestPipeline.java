@@ -0,0 +1,261 @@
+package project3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Staged ingestion pipeline for review folders and archives:
+ * <pre>
+ *   enumerate --&gt; read --&gt; classify --&gt; insert
+ * </pre>
+ * Stages are connected by bounded queues. A stage that gets ahead blocks on
+ * the full queue in front of the next one, so a source of any size streams
+ * through with a fixed number of reviews in flight. For archives, the
+ * enumeration stage decompresses while earlier entries are classified. The read and classify
+ * stages run on several threads each; enumeration and insertion run on one.
+ * <p>
+ * A pipeline can be run any number of times, also concurrently. The worker
+ * threads come from a shared pool owned by the pipeline.
+ * <p>
+ * Interrupting the calling thread cancels a run: enumeration stops, the
+ * stages drop whatever is still queued, and run returns once every stage
+ * has stopped, so nothing is inserted after it returns.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class IngestPipeline implements FolderIngester {
+
+    /**
+     * Creates a pipeline with one reader per core (at least four, reading is
+     * mostly waiting), one classifier per core and 1024 slot queues.
+     */
+    public IngestPipeline() {
+        this(Math.max(4, Runtime.getRuntime().availableProcessors()),
+                Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    /**
+     * Constructor.
+     * @param readThreads Number of threads reading files.
+     * @param classifyThreads Number of threads classifying reviews.
+     * @param queueCapacity Capacity of each queue between two stages.
+     */
+    public IngestPipeline(int readThreads, int classifyThreads, int queueCapacity) {
+        if (readThreads < 1 || classifyThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Thread counts and queue capacity must be positive");
+        }
+        this.readThreads = readThreads;
+        this.classifyThreads = classifyThreads;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.workers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ingest-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Streams every entry of a source through the pipeline.
+     * @param source The review entries.
+     * @param reader Reads an entry into a review.
+     * @param classifier Classifies a review.
+     * @param sink Receives each classified review, on a single thread.
+     * @return The per stage statistics of this run.
+     * @throws IOException if the source cannot be read; the entries
+     * enumerated before are still inserted, before run throws.
+     * @throws InterruptedException if the calling thread is interrupted; the
+     * reviews inserted until then stay inserted.
+     */
+    @Override
+    public IngestStats run(ReviewSource source, ReviewReaderStage reader, ClassifierStage classifier,
+            Consumer<MovieReview> sink) throws IOException, InterruptedException {
+        IngestStats stats = new IngestStats();
+        BlockingQueue<ReviewSource.Entry> entries = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<MovieReview> read = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<MovieReview> classified = new ArrayBlockingQueue<>(queueCapacity);
+        List<Future<?>> running = new ArrayList<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        // Each stage passes on one end marker per thread of the next stage,
+        // sent by whichever of its own threads finishes last.
+        AtomicInteger readersLeft = new AtomicInteger(readThreads);
+        AtomicInteger classifiersLeft = new AtomicInteger(classifyThreads);
+
+        for (int i = 0; i < readThreads; i++) {
+            running.add(workers.submit(() -> {
+                try {
+                    for (ReviewSource.Entry entry = entries.take(); entry != END_OF_ENTRIES; entry = entries.take()) {
+                        if (cancelled.get()) {
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            MovieReview review = reader.read(entry);
+                            stats.read.record(System.nanoTime() - start);
+                            read.put(review);
+                        } catch (IOException | RuntimeException e) {
+                            stats.read.fail();
+                            log.warning("Cannot read " + entry.getPath() + ": " + e);
+                        }
+                    }
+                } finally {
+                    if (readersLeft.decrementAndGet() == 0) {
+                        endStage(read, END_OF_REVIEWS, classifyThreads);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < classifyThreads; i++) {
+            running.add(workers.submit(() -> {
+                try {
+                    for (MovieReview review = read.take(); review != END_OF_REVIEWS; review = read.take()) {
+                        if (cancelled.get()) {
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            review.setPredictedScore(classifier.classify(review));
+                            stats.classify.record(System.nanoTime() - start);
+                            classified.put(review);
+                        } catch (RuntimeException e) {
+                            stats.classify.fail();
+                            log.warning("Cannot classify " + review.getFilePath() + ": " + e);
+                        }
+                    }
+                } finally {
+                    if (classifiersLeft.decrementAndGet() == 0) {
+                        endStage(classified, END_OF_REVIEWS, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> inserter = workers.submit(() -> {
+            for (MovieReview review = classified.take(); review != END_OF_REVIEWS; review = classified.take()) {
+                if (cancelled.get()) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    sink.accept(review);
+                    stats.insert.record(System.nanoTime() - start);
+                    stats.firstReview();
+                } catch (RuntimeException e) {
+                    stats.insert.fail();
+                    log.warning("Cannot insert " + review.getFilePath() + ": " + e);
+                }
+            }
+            return null;
+        });
+        running.add(inserter);
+
+        // Enumerate on the calling thread; put() blocks while readers lag behind
+        try {
+            long start = System.nanoTime();
+            for (ReviewSource.Entry entry = source.next(); entry != null; entry = source.next()) {
+                stats.enumerate.record(System.nanoTime() - start);
+                entries.put(entry);
+                start = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            // Cancelled; the stages drain their queues and end
+            cancelled.set(true);
+        } finally {
+            // Also when the source fails: the stages finish what was
+            // enumerated before run throws, so nothing is inserted later
+            endStage(entries, END_OF_ENTRIES, readThreads);
+            awaitStages(running, cancelled);
+        }
+        stats.finish();
+        // The flag also covers an interrupt that came after every stage ended
+        boolean interrupted = Thread.interrupted();
+        if (cancelled.get() || interrupted) {
+            throw new InterruptedException("Ingestion cancelled after " + stats.getInserted() + " reviews");
+        }
+        return stats;
+    }
+
+    /**
+     * Waits for every stage to stop. An interrupt meanwhile cancels the run
+     * but does not stop the wait; the interrupt status is restored.
+     */
+    private static void awaitStages(List<Future<?>> running, AtomicBoolean cancelled) {
+        boolean interrupted = false;
+        for (Future<?> future : running) {
+            boolean waiting = true;
+            while (waiting) {
+                try {
+                    future.get();
+                    waiting = false;
+                } catch (ExecutionException e) {
+                    log.warning("Ingestion stage failed: " + e.getCause());
+                    waiting = false;
+                } catch (InterruptedException e) {
+                    // Keep waiting, so the stages are idle when run returns
+                    cancelled.set(true);
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Shuts down the worker threads. The pipeline cannot be run afterwards.
+     */
+    @Override
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Tells the threads of the next stage that no more items will come. An
+     * interrupt does not stop it, since a missing marker would leave a thread
+     * of the next stage waiting forever; the interrupt status is restored.
+     */
+    private static <T> void endStage(BlockingQueue<T> queue, T marker, int consumers) {
+        boolean interrupted = false;
+        int sent = 0;
+        while (sent < consumers) {
+            try {
+                queue.put(marker);
+                sent++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final int readThreads;
+    private final int classifyThreads;
+    private final int queueCapacity;
+    private final ExecutorService workers;
+
+    /**
+     * End markers, compared by identity.
+     */
+    private static final ReviewSource.Entry END_OF_ENTRIES = new ReviewSource.Entry("", null);
+    private static final MovieReview END_OF_REVIEWS =
+            new MovieReview(-1, "", "", ReviewScore.UNKNOWN, ReviewScore.UNKNOWN);
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
@@ -0,0 +1,154 @@
+package project3;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of one folder ingestion run: per stage item and failure counts
+ * and busy time, time to the first inserted review and overall throughput.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class IngestStats {
+
+    /**
+     * Receives progress while reviews are loaded. Called from the thread
+     * inserting the reviews.
+     */
+    public interface Progress {
+        /**
+         * Called after each review.
+         * @param done Reviews handled so far, imported or skipped.
+         * @param total Reviews to load, or -1 while not known.
+         */
+        void update(long done, long total);
+    }
+
+    /**
+     * Starts the clock of a run.
+     */
+    IngestStats() {
+        startNanos = System.nanoTime();
+        firstReviewNanos = new AtomicLong(-1);
+    }
+
+    /**
+     * Records that a review was inserted; only the first call counts.
+     */
+    void firstReview() {
+        if (firstReviewNanos.get() < 0) {
+            firstReviewNanos.compareAndSet(-1, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Stops the clock of the run.
+     */
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Getter method for the wall clock time of the run.
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Getter method for the time from the start of the run until the first
+     * review was inserted.
+     * @return time to first review in nanoseconds, or -1 if none was inserted
+     */
+    public long getTimeToFirstReviewNanos() {
+        return firstReviewNanos.get();
+    }
+
+    /**
+     * Getter method for the number of reviews that made it into the
+     * database.
+     * @return inserted reviews
+     */
+    public long getInserted() {
+        return insert.getItems();
+    }
+
+    /**
+     * Getter method for the overall throughput.
+     * @return inserted reviews per second
+     */
+    public double getReviewsPerSecond() {
+        return elapsedNanos == 0 ? 0 : insert.getItems() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%n%s%n%s%n%s%n%.0f reviews/s in %.1f ms, first review after %.1f ms",
+                enumerate, read, classify, insert, getReviewsPerSecond(), elapsedNanos / 1e6,
+                firstReviewNanos.get() / 1e6);
+    }
+
+    /**
+     * Statistics of one stage of one run.
+     */
+    public static final class StageStats {
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            items.incrementAndGet();
+            busyNanos.addAndGet(nanos);
+        }
+
+        void fail() {
+            failures.incrementAndGet();
+        }
+
+        /**
+         * Getter method for the number of items the stage passed on.
+         * @return items
+         */
+        public long getItems() {
+            return items.get();
+        }
+
+        /**
+         * Getter method for the number of items the stage dropped.
+         * @return failures
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * Getter method for the time spent in the stage, summed over threads.
+         * @return busy time in nanoseconds
+         */
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s %8d items %5d failed %10.1f ms busy",
+                    name, items.get(), failures.get(), busyNanos.get() / 1e6);
+        }
+
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+    }
+
+    final StageStats enumerate = new StageStats("enumerate");
+    final StageStats read = new StageStats("read");
+    final StageStats classify = new StageStats("classify");
+    final StageStats insert = new StageStats("insert");
+
+    private final long startNanos;
+    private final AtomicLong firstReviewNanos;
+    private volatile long elapsedNanos;
+}
@@ -0,0 +1,229 @@
+package project3;
+
+import java.util.function.Consumer;
+
+/**
+ * Map from int ids to reviews without boxing: keys and values live in two
+ * parallel arrays probed linearly. A removed review leaves a tombstone so
+ * that later keys of the same probe run stay reachable; tombstones are
+ * reused by inserts and dropped when the table is rebuilt.
+ * <p>
+ * Not thread-safe; StripedReviewStore guards each map with a lock.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class IntReviewMap {
+
+    /**
+     * Constructor for an empty map.
+     */
+    public IntReviewMap() {
+        this(16);
+    }
+
+    /**
+     * Constructor.
+     * @param expectedSize Number of reviews the map holds without growing.
+     */
+    public IntReviewMap(int expectedSize) {
+        allocate(capacityFor(Math.max(expectedSize, 1)));
+    }
+
+    /**
+     * Adds a review, replacing any review with the same id.
+     * @param id The id of the review.
+     * @param review The review, not null.
+     * @return The replaced review, or null.
+     */
+    public MovieReview put(int id, MovieReview review) {
+        if (review == null) {
+            throw new NullPointerException("review");
+        }
+        int tombstone = -1;
+        for (int i = slot(id); ; i = (i + 1) & mask) {
+            MovieReview current = values[i];
+            if (current == null) {
+                if (tombstone >= 0) {
+                    i = tombstone;
+                    tombstones--;
+                } else if (size + tombstones + 1 > threshold) {
+                    rehash();
+                    return put(id, review);
+                }
+                keys[i] = id;
+                values[i] = review;
+                size++;
+                return null;
+            } else if (current == TOMBSTONE) {
+                if (tombstone < 0) {
+                    tombstone = i;
+                }
+            } else if (keys[i] == id) {
+                values[i] = review;
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Looks up a review.
+     * @param id The id of the review.
+     * @return The review, or null if there is none with this id.
+     */
+    public MovieReview get(int id) {
+        int i = indexOf(id);
+        return i < 0 ? null : values[i];
+    }
+
+    /**
+     * Removes a review.
+     * @param id The id of the review.
+     * @return The removed review, or null if there was none.
+     */
+    public MovieReview remove(int id) {
+        int i = indexOf(id);
+        if (i < 0) {
+            return null;
+        }
+        MovieReview removed = values[i];
+        values[i] = TOMBSTONE;
+        size--;
+        tombstones++;
+        return removed;
+    }
+
+    /**
+     * Getter method for the number of reviews.
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter method for the largest id in the map.
+     * @return The largest id, or 0 if the map is empty.
+     */
+    public int maxId() {
+        int max = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i] != TOMBSTONE) {
+                max = Math.max(max, keys[i]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Copies the ids into an array.
+     * @param target The array to copy into, at offset.
+     * @param offset The first index written.
+     * @return The index after the last id written.
+     */
+    public int copyIds(int[] target, int offset) {
+        int n = offset;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i] != TOMBSTONE) {
+                target[n++] = keys[i];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Hands every review to an action, in table order.
+     * @param action The action.
+     */
+    public void forEach(Consumer<MovieReview> action) {
+        for (MovieReview review : values) {
+            if (review != null && review != TOMBSTONE) {
+                action.accept(review);
+            }
+        }
+    }
+
+    /**
+     * Getter method for the number of slots, for footprint estimates.
+     * @return The table capacity.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    private int indexOf(int id) {
+        for (int i = slot(id); ; i = (i + 1) & mask) {
+            MovieReview current = values[i];
+            if (current == null) {
+                return -1;
+            } else if (current != TOMBSTONE && keys[i] == id) {
+                return i;
+            }
+        }
+    }
+
+    private int slot(int id) {
+        // Murmur3 finalizer: consecutive ids land far apart
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    /**
+     * Rebuilds the table without tombstones, growing it if the live reviews
+     * alone would fill it past the load factor.
+     */
+    private void rehash() {
+        int[] oldKeys = keys;
+        MovieReview[] oldValues = values;
+        allocate(capacityFor(size + 1));
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null && oldValues[i] != TOMBSTONE) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+        tombstones = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new MovieReview[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Highest share of slots holding a review or a tombstone.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Marks the slot of a removed review.
+     */
+    private static final MovieReview TOMBSTONE = new MovieReview(-1, "", "",
+            ReviewScore.UNKNOWN, ReviewScore.UNKNOWN);
+
+    private int[] keys;
+    private MovieReview[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private int tombstones;
+}
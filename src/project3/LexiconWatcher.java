@@ -0,0 +1,134 @@
+package project3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Watches the positive and negative word files and reloads the lexicon of a
+ * handler when either changes. The new lexicon is built on the watcher
+ * thread and swapped in with a single write, so classification never waits
+ * for a reload and each classification uses one lexicon throughout. A file
+ * that cannot be read, e.g. while it is half written, leaves the current
+ * lexicon in place until the next change.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class LexiconWatcher implements Closeable {
+
+    /**
+     * Starts watching.
+     * @param handler The handler whose lexicon is reloaded.
+     * @param posFilePath The positive words file.
+     * @param negFilePath The negative words file.
+     * @param onReload Called with each new lexicon, on the watcher thread, or null.
+     * @throws IOException if the directories cannot be watched.
+     */
+    public LexiconWatcher(AbstractReviewHandler handler, String posFilePath, String negFilePath,
+            Consumer<PolarityLexicon> onReload) throws IOException {
+        this.handler = handler;
+        this.posFile = Paths.get(posFilePath).toAbsolutePath().normalize();
+        this.negFile = Paths.get(negFilePath).toAbsolutePath().normalize();
+        this.onReload = onReload;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        directories.add(posFile.getParent());
+        directories.add(negFile.getParent());
+        for (Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        this.thread = new Thread(this::watchLoop, "lexicon-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching.
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Editors write in several steps; wait until the files are quiet
+                for (key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS); key != null;
+                        key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Consumes the events of a key.
+     * @return true if one of the word files changed.
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+            changed |= file.equals(posFile) || file.equals(negFile);
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            handler.loadPosNegWords(posFile.toString(), negFile.toString());
+            PolarityLexicon lexicon = handler.getLexicon();
+            log.info("Reloaded word lists, lexicon version " + lexicon.getVersion()
+                    + " with " + lexicon.size() + " words");
+            if (onReload != null) {
+                onReload.accept(lexicon);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warning("Cannot reload word lists, keeping lexicon version "
+                    + handler.getLexicon().getVersion() + ": " + e);
+        }
+    }
+
+    private final AbstractReviewHandler handler;
+    private final Path posFile;
+    private final Path negFile;
+    private final Consumer<PolarityLexicon> onReload;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Time without further changes before the files are read.
+     */
+    private static final long QUIET_MILLIS = 200;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
@@ -20,22 +20,67 @@ public class MovieReview {
         this.text = text;
         this.realScore = realScore;
         this.predictedScore = predictedScore; // Set a default value. To be changed later.
+        this.textOffset = -1;
+        this.contentHash = ContentHash.of(text);
+        this.contentHashed = true;
+    }
+
+    /**
+     * Constructor for a review whose text stays in a TextStore and is only
+     * fetched when needed.
+     * @param id
+     * @param filePath
+     * @param textStore Where the text is fetched from.
+     * @param textOffset Offset of the text in the store, or -1 to read it
+     * from filePath.
+     * @param textLength Length in bytes of the text in the store.
+     * @param realScore
+     * @param predictedScore
+     */
+    public MovieReview(int id, String filePath, TextStore textStore, long textOffset,
+            int textLength, ReviewScore realScore, ReviewScore predictedScore) {
+        this.id = id;
+        this.filePath = filePath;
+        this.text = null;
+        this.textStore = textStore;
+        this.textOffset = textOffset;
+        this.textLength = textLength;
+        this.realScore = realScore;
+        this.predictedScore = predictedScore;
     }
 
     /**
      * Getter method for accessing the id of a review.
-     * @return Review id field
+     * @return Review id field, or NO_ID until one is assigned
      */
     public int getId() {
         return id;
     }
 
+    /**
+     * Gives the review its id, once. Reviews read by the ingestion pipeline
+     * get theirs in the single insert stage, so ids follow insertion order.
+     * @param id The id.
+     * @throws IllegalStateException if the review already has an id.
+     */
+    void assignId(int id) {
+        if (this.id != NO_ID) {
+            throw new IllegalStateException("Review " + this.id + " already has an id");
+        }
+        this.id = id;
+    }
+
     /**
      * Getter method for accessing the file path of a review.
      * @return The filePath
      */
     public String getFilePath() {
-        return filePath;
+        String resident = filePath;
+        if (resident != null) {
+            return resident;
+        }
+        // Only an arena takes over the path of a review
+        return ((TextArena) textStore).loadFilePath(this);
     }
 
 
@@ -44,7 +89,115 @@ public class MovieReview {
      * @return Review text field
      */
     public String getText() {
-        return text;
+        String resident = text;
+        if (resident != null) {
+            return resident;
+        }
+        return textStore.loadText(this);
+    }
+
+    /**
+     * Getter method for the fingerprint of the review text. It is computed
+     * when the review is read; reviews loaded without their text take it
+     * from the database, or compute it on first use.
+     * @return The 64-bit content fingerprint.
+     */
+    public long getContentHash() {
+        if (!contentHashed) {
+            contentHash = ContentHash.of(getText());
+            contentHashed = true;
+        }
+        return contentHash;
+    }
+
+    /**
+     * Sets the fingerprint stored with a review whose text is not loaded,
+     * so it need not be read to compute it.
+     * @param contentHash The fingerprint of the review text.
+     */
+    void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+        this.contentHashed = true;
+    }
+
+    /**
+     * Whether the text is held by this object rather than by a TextStore.
+     * @return true if the text is resident.
+     */
+    public boolean isTextResident() {
+        return text != null;
+    }
+
+    /**
+     * Drops the resident text; from now on it is fetched from the original
+     * review file through the given store.
+     * @param store The store that fetches the text.
+     */
+    void releaseText(TextStore store) {
+        relocateText(store, -1, 0);
+    }
+
+    /**
+     * Points the review at a new location of its text and drops the resident
+     * text. Called by the store that owns the location.
+     * @param store The store that fetches the text.
+     * @param offset Offset of the text in the store, or -1 for filePath.
+     * @param length Length in bytes of the text in the store.
+     */
+    void relocateText(TextStore store, long offset, int length) {
+        this.textStore = store;
+        this.textOffset = offset;
+        this.textLength = length;
+        this.text = null;
+    }
+
+    /**
+     * Turns the review into a view on a TextArena: the text and the file
+     * path are dropped and fetched from the arena from now on.
+     * @param arena The arena holding the text and path.
+     * @param address Address of the text in the arena; the path follows it.
+     * @param textLength Length in bytes of the text.
+     * @param pathLength Length in bytes of the path.
+     */
+    void moveToArena(TextArena arena, long address, int textLength, int pathLength) {
+        this.textStore = arena;
+        this.textOffset = address;
+        this.textLength = textLength;
+        this.pathLength = pathLength;
+        this.filePath = null;
+        this.text = null;
+    }
+
+    /**
+     * Getter method for the store the text is fetched from.
+     * @return textStore, or null if the text has always been resident
+     */
+    TextStore getTextStore() {
+        return textStore;
+    }
+
+    /**
+     * Getter method for the length in bytes of the path in a TextArena.
+     * @return The length.
+     */
+    int getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Getter method for the offset of the text in its store.
+     * @return The offset, or -1 if the text comes from filePath.
+     */
+    long getTextOffset() {
+        return textOffset;
+    }
+
+    /**
+     * Getter method for the length in bytes of the text in its store.
+     * @return The length.
+     */
+    int getTextLength() {
+        return textLength;
     }
 
     /**
@@ -71,26 +224,58 @@ public class MovieReview {
         return realScore;
     }
 
+    /**
+     * Id of a review that has not been given one yet.
+     */
+    public static final int NO_ID = 0;
     
     /**
-     * The id of the review (e.g. 2087).
+     * The id of the review (e.g. 2087), or NO_ID until it is assigned.
      */
-    private final int id;
+    private int id;
     
     /**
-     * The path to text file containing the movie review. 
+     * The path to text file containing the movie review, or null when it
+     * lives in a TextArena.
      */
-    private final String filePath;
+    private volatile String filePath;
     
     /**
-     *  The text of the review.
+     *  The text of the review, or null when it lives in textStore.
+     */
+    private volatile String text;
+
+    /**
+     * Where the text is fetched from when it is not resident.
+     */
+    private TextStore textStore;
+
+    /**
+     * Offset of the text in textStore; -1 means the original review file.
+     */
+    private long textOffset;
+
+    /**
+     * Length in bytes of the text in textStore.
+     */
+    private int textLength;
+
+    /**
+     * Length in bytes of the path in a TextArena.
+     */
+    private int pathLength;
+
+    /**
+     * Fingerprint of the text, valid once contentHashed is set. Written
+     * before the flag, so a reader seeing the flag sees the fingerprint.
      */
-    private final String text;
+    private long contentHash;
+    private volatile boolean contentHashed;
     
     /**
      * The predicted score of the review (NEGATIVE, POSITIVE).
      */
-    private ReviewScore predictedScore;
+    private volatile ReviewScore predictedScore;
     
     /**
      * The ground truth score of the review (NEGATIVE, POSITIVE, UNKNOWN).
@@ -2,6 +2,7 @@ package project3;
 
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.table.TableRowSorter;
 import javax.swing.text.DefaultCaret;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
@@ -10,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,15 +41,30 @@ public class MovieReviewApp {
     // Output area
     static protected JTextArea outputArea = new JTextArea();
     static private JScrollPane outputScrollPane = new JScrollPane(outputArea);
+    // Buffered writes to the output area, from any thread; -DoutputLines caps the lines kept
+    static protected final OutputConsole console = new OutputConsole(outputArea, Integer.getInteger("outputLines", 5000));
 
-    // monitor width and height
-    private static int width = Toolkit.getDefaultToolkit().getScreenSize().width;
-    private static int height = Toolkit.getDefaultToolkit().getScreenSize().height;
+    // Runs the commands of the buttons; -DcommandThreads sets how many run at once
+    private static final CommandRunner commands = new CommandRunner(Integer.getInteger("commandThreads", 4));
+
+    // Progress of the running command
+    static private final JPanel statusPanel = new JPanel();
+    static private final JProgressBar progressBar = new JProgressBar();
+    static private final JLabel statusLabel = new JLabel("Ready.");
+    static private final JButton cancelButton = new JButton("Cancel");
+
+    // monitor width and height (none without a display, e.g. under the benchmarks)
+    private static int width = GraphicsEnvironment.isHeadless() ? 0 : Toolkit.getDefaultToolkit().getScreenSize().width;
+    private static int height = GraphicsEnvironment.isHeadless() ? 0 : Toolkit.getDefaultToolkit().getScreenSize().height;
 
     // window width and height
     private static int windowsWidth = 800;
     private static int windowsHeight = 800;
 
+    // row filters of the table window
+    private static final String[] ROW_FILTERS = {"All reviews", "Correctly classified", "Misclassified",
+            "Predicted positive", "Predicted negative"};
+
     public static void main(String [] args) {
         // set up the logger
         FileHandler fh;
@@ -75,11 +92,30 @@ public class MovieReviewApp {
                     + "Please check that the file paths are correct and try again.");
             return;
         }
+        // Show what the handler reports in the output area
+        rh.setEventSink(new TextAreaEventSink(console));
+        // Optional reload of the word lists when they change, -DwatchLexicon=true
+        if (Boolean.getBoolean("watchLexicon")) {
+            try {
+                rh.watchPosNegWords(pathToPosWords, pathToNegWords, lexicon ->
+                        console.append("Word lists reloaded (lexicon version " + lexicon.getVersion()
+                                + "). Use command 6 to rescore the database.\n"));
+            } catch (IOException ex) {
+                log.warning("Cannot watch the word lists: " + ex);
+            }
+        }
+        // Text, log and loading options given as system properties
+        rh.applySystemProperties();
+        // Per stage counts and latencies, for JConsole or VisualVM
+        StageMetrics.registerMBeans();
         // run the GUI
         SwingUtilities.invokeLater(() -> {
             createAndShowGUI();
             File databaseFile = new File(ReviewHandler.DATA_FILE_NAME);
-            if(databaseFile.exists()){
+            File segmentFile = new File(ReviewHandler.DB_SEGMENT_FILE_NAME);
+            File logFile = new File(ReviewHandler.LOG_FILE_NAME);
+            File rotatedLogFile = new File(ReviewHandler.LOG_ROTATED_FILE_NAME);
+            if(databaseFile.exists() || segmentFile.exists() || logFile.exists() || rotatedLogFile.exists()){
                 try {
                     rh.loadDB();
                 } catch (IOException e) {
@@ -100,6 +136,8 @@ public class MovieReviewApp {
         comboBox.addItem(" 2. Delete movie review from database (given its id).");
         comboBox.addItem(" 3. Search movie reviews in database by id.");
         comboBox.addItem(" 4. Search movie reviews in database by substring.");
+        comboBox.addItem(" 5. Search movie reviews in database by words.");
+        comboBox.addItem(" 6. Re-classify all movie reviews in database.");
         comboBox.addItem(" 0. Exit program.");
         comboBox.setSelectedIndex(0);
 
@@ -108,9 +146,9 @@ public class MovieReviewApp {
             log.info("StateChange = " + e.getStateChange());
             if (e.getStateChange() == 1) {
                 if (e.getItem().equals("Please select...")) {
-                    outputArea.setText("");
-                    outputArea.append(rh.getDatabase().size() + "records in database.\n");
-                    outputArea.append("Please select a command to continue.\n");
+                    console.clear();
+                    console.append(rh.getDatabase().size() + "records in database.\n");
+                    console.append("Please select a command to continue.\n");
                     topPanel.removeAll();
                     topPanel.add(commandLabel);
                     topPanel.add(comboBox);
@@ -135,6 +173,10 @@ public class MovieReviewApp {
                     searchReviewsId();
                 } else if (e.getItem().equals(" 4. Search movie reviews in database by substring.")) {
                     searchReviewsSubstring();
+                } else if (e.getItem().equals(" 5. Search movie reviews in database by words.")) {
+                    searchReviewsWords();
+                } else if (e.getItem().equals(" 6. Re-classify all movie reviews in database.")) {
+                    reclassifyReviews();
                 } else if (e.getItem().equals(" 0. Exit program.")) {
                     exit();
                 }
@@ -144,15 +186,13 @@ public class MovieReviewApp {
         // Threaded databaseButton Listener
         databaseButton.addActionListener(e -> {
             log.info("database button clicked.");
-            Runnable myRunnable = () -> printJTable(rh.searchBySubstring(""));
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            runCommand("Show database", null, false, task -> printJTable(ReviewTableModel.of(rh.getDatabase())));
         });
 
         // Threaded saveButton listener
         saveButton.addActionListener(e -> {
             log.info("Save button clicked.");
-            Runnable myRunnable = () -> {
+            runCommand("Save database", null, false, task -> {
                 try {
                     rh.saveDB();
                 } catch (IOException ex) {
@@ -160,10 +200,8 @@ public class MovieReviewApp {
                     log.warning("Save DB failed");
                     ex.printStackTrace();
                 }
-                outputArea.append("Database saved.\n");
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+                console.append("Database saved.\n");
+            });
         });
 
         // Layout for Top panel and adding all buttons
@@ -195,7 +233,7 @@ public class MovieReviewApp {
         caret.setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
         outputArea.setFont(fontCourier);
 
-        outputArea.setText("Welcome to Sentiment analysis App.\n");
+        console.append("Welcome to Sentiment analysis App.\n");
         outputArea.setEditable(false);
         // Make a border and scroll function
         final Border border = BorderFactory.createLineBorder(Color.BLACK);
@@ -208,6 +246,53 @@ public class MovieReviewApp {
 
     } // END createBottomPanel
 
+    /**
+     * CreateStatusPanel shows the progress of the running command, with a
+     * button to cancel it. It polls the command a few times a second.
+     */
+    private static void createStatusPanel() {
+        statusPanel.setLayout(new BorderLayout(10, 0));
+        statusPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        progressBar.setPreferredSize(new Dimension(160, progressBar.getPreferredSize().height));
+        statusPanel.add(progressBar, BorderLayout.WEST);
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(cancelButton, BorderLayout.EAST);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            CommandTask task = commands.getCurrent();
+            if (task != null && task.cancel()) {
+                log.info("Cancel button clicked. (" + task.getName() + ")");
+            }
+        });
+        new Timer(250, e -> {
+            CommandTask task = commands.getCurrent();
+            if (task == null) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(0);
+                statusLabel.setText("Ready.");
+                cancelButton.setEnabled(false);
+                return;
+            }
+            long total = task.getTotal();
+            progressBar.setIndeterminate(total <= 0);
+            if (total > 0) {
+                progressBar.setValue((int) (100 * Math.min(task.getDone(), total) / total));
+            }
+            statusLabel.setText(task.getStatus());
+            cancelButton.setEnabled(task.isCancellable() && !task.isCancelled());
+        }).start();
+    } // END createStatusPanel
+
+    /**
+     * Runs a command of a button on the command runner, or tells the user
+     * that the same command is already queued or running.
+     */
+    private static void runCommand(String name, String unit, boolean cancellable, CommandRunner.Command command) {
+        if (commands.submit(name, unit, cancellable, command) == null) {
+            console.append(name + " is already running, please wait for it to finish.\n");
+        }
+    }
+
     /**
      * This method creates and displays a new JTable popup that shows movie reivew's
      * in a semi adjustable window.  It may not be convenient to show full text, but
@@ -215,49 +300,107 @@ public class MovieReviewApp {
      * @param targetList the list of Movie Reviews to be put in the pop up table
      */
     public static void printJTable(List<MovieReview> targetList) {
-        // Create column names
-        String columnNames[] = {"ID", "Text", "Predicted", "Real"};
-        // Data
-        String dataValues[][] = new String[targetList.size()][4];
-        for (int i = 0; i < targetList.size(); i++) {
-            dataValues[i][0] = String.valueOf((targetList.get(i).getId()));
-            dataValues[i][1] = targetList.get(i).getText();
-            dataValues[i][2] = String.valueOf(targetList.get(i).getPredictedScore());
-            dataValues[i][3] = String.valueOf(targetList.get(i).getRealScore());
+        if (targetList == null) {
+            // Nothing found; the handler has said so
+            return;
         }
-        JTable table = new JTable(dataValues,columnNames) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        printJTable(ReviewTableModel.of(targetList));
+    }
+
+    /**
+     * Shows reviews in a table window. Rows are rendered on demand from the
+     * model, and sorting and filtering only reorder row indexes, so even a
+     * view of the whole database opens at once. May be called from any
+     * thread.
+     * @param model The reviews to show.
+     */
+    public static void printJTable(ReviewTableModel model) {
+        SwingUtilities.invokeLater(() -> {
+            JTable table = new JTable(model) {
+                @Override
+                public boolean isCellEditable(int row, int column) {
+                    return false;
+                }
+            };
+            table.setFillsViewportHeight(true);
+            table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+            for (int i = 0; i < ReviewTableModel.COLUMN_WIDTHS.length; i++) {
+                table.getColumnModel().getColumn(i).setPreferredWidth(ReviewTableModel.COLUMN_WIDTHS[i]);
             }
-        };
-        table.setFillsViewportHeight(true);
-        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
-
-        JScrollPane scrollPane = new JScrollPane(table, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.createVerticalScrollBar();
-        scrollPane.createHorizontalScrollBar();
-        scrollPane.createVerticalScrollBar();
-        scrollPane.createHorizontalScrollBar();
-        JFrame.setDefaultLookAndFeelDecorated(true);
 
-        JFrame resultFrame = new JFrame("Database Entries");
-        resultFrame.setBounds((width - windowsWidth)/5, (height - windowsHeight)/5, windowsWidth, windowsHeight/2);
-        resultFrame.setContentPane(scrollPane);
-        resultFrame.setVisible(true);
+            // Sorts by id or class; sorting by text would load every text
+            TableRowSorter<ReviewTableModel> sorter = new TableRowSorter<>(model);
+            sorter.setSortable(ReviewTableModel.TEXT_COLUMN, false);
+            table.setRowSorter(sorter);
+
+            JLabel rowCount = new JLabel(model.getRowCount() + " reviews");
+            JComboBox<String> filter = new JComboBox<>(ROW_FILTERS);
+            filter.addActionListener(e -> {
+                sorter.setRowFilter(rowFilter(filter.getSelectedIndex()));
+                rowCount.setText(table.getRowCount() + " of " + model.getRowCount() + " reviews");
+            });
+            JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            filterPanel.add(new JLabel("Show:"));
+            filterPanel.add(filter);
+            filterPanel.add(rowCount);
+
+            JScrollPane scrollPane = new JScrollPane(table, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+            JPanel contentPane = new JPanel(new BorderLayout());
+            contentPane.add(filterPanel, BorderLayout.NORTH);
+            contentPane.add(scrollPane, BorderLayout.CENTER);
+            JFrame.setDefaultLookAndFeelDecorated(true);
+
+            JFrame resultFrame = new JFrame("Database Entries");
+            resultFrame.setBounds((width - windowsWidth)/5, (height - windowsHeight)/5, windowsWidth, windowsHeight/2);
+            resultFrame.setContentPane(contentPane);
+            resultFrame.setVisible(true);
+        });
     } //END printJTable
 
+    /**
+     * The row filter chosen in a table window, looking at each review in
+     * place.
+     * @param choice The index of the choice in ROW_FILTERS.
+     * @return The filter, or null to show every row.
+     */
+    private static RowFilter<ReviewTableModel, Integer> rowFilter(int choice) {
+        if (choice == 0) {
+            return null;
+        }
+        return new RowFilter<ReviewTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends ReviewTableModel, ? extends Integer> entry) {
+                MovieReview review = entry.getModel().getReview(entry.getIdentifier());
+                if (review == null) {
+                    return false;
+                }
+                ReviewScore predicted = review.getPredictedScore();
+                ReviewScore real = review.getRealScore();
+                switch (choice) {
+                    case 1:
+                        return real != ReviewScore.UNKNOWN && predicted == real;
+                    case 2:
+                        return real != ReviewScore.UNKNOWN && predicted != real;
+                    case 3:
+                        return predicted == ReviewScore.POSITIVE;
+                    default:
+                        return predicted == ReviewScore.NEGATIVE;
+                }
+            }
+        };
+    }
+
     // used for selecting class in a combo box
     static int realClass = 0;
     /**
      * A new loadreviews that calls rh.loadReviews so that it properly updates in the GUI
      */
     public static void loadReviews() {
-        outputArea.setText("");
-        outputArea.append(rh.getDatabase().size()+ " records in database.\n");
-        outputArea.append("Command 1\n");
-        outputArea.append("Please input the path of file or folder.\n");
-        outputArea.append("Example ./data/Movie-reviews/neg\n");
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 1\n");
+        console.append("Please input the path of file or folder.\n");
+        console.append("Example ./data/Movie-reviews/neg\n");
 
         topPanel.removeAll();
         topPanel.add(commandLabel);
@@ -298,12 +441,10 @@ public class MovieReviewApp {
         // listener for confirm button
         confirmButton.addActionListener(e -> {
             log.info("Confirm button clicked. (Command 1)");
-            Runnable myRunnable = () -> {
-                String path = pathInput.getText();
-                rh.loadReviews(path, realClass);
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            String path = pathInput.getText();
+            int pathClass = realClass;
+            // Cancellable; progress counts the review files
+            runCommand("Load reviews", "files", true, task -> rh.loadReviews(path, pathClass, task));
         });
         topPanel.add(pathLabel);
         topPanel.add(pathInput);
@@ -327,10 +468,10 @@ public class MovieReviewApp {
      * Delete Review UI implementation
      */
     public static void deleteReviews() {
-        outputArea.setText("");
-        outputArea.append(rh.getDatabase().size()+ " records in database.\n");
-        outputArea.append("Command 2\n");
-        outputArea.append("Please input the ID of the review to delete.\n");
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 2\n");
+        console.append("Please input the ID of the review to delete.\n");
 
         topPanel.removeAll();
         topPanel.add(commandLabel);
@@ -343,12 +484,10 @@ public class MovieReviewApp {
 
         deleteButton.addActionListener(e -> {
             log.info("Confirm button clicked. (Command 2)");
-            Runnable myRunnable = () -> {
+            runCommand("Delete review", null, false, task -> {
                 int inputID = Integer.parseInt(idInput.getText());
                 rh.deleteReview(inputID);
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            });
         });
         topPanel.add(idLabel);
         topPanel.add(idInput);
@@ -370,10 +509,10 @@ public class MovieReviewApp {
      */
     static ArrayList<MovieReview> results = new ArrayList<>();
     public static void searchReviewsId() {
-        outputArea.setText("");
-        outputArea.append(rh.getDatabase().size() + " records in database.\n");
-        outputArea.append("Command 3\n");
-        outputArea.append("Please type the numerical ID of the review in the field.\n");
+        console.clear();
+        console.append(rh.getDatabase().size() + " records in database.\n");
+        console.append("Command 3\n");
+        console.append("Please type the numerical ID of the review in the field.\n");
 
         topPanel.removeAll();
         topPanel.add(commandLabel);
@@ -386,21 +525,21 @@ public class MovieReviewApp {
 
         searchButton.addActionListener(e -> {
             log.info("Search button clicked. (Command 3)");
-            Runnable myRunnable = () -> {
+            runCommand("Search by id", null, false, task -> {
                 try {
                     int reviewId = Integer.parseInt(iDInput.getText());
                     results = new ArrayList<>();
                     MovieReview result = rh.searchById(reviewId);
-                    results.add(result);
-                    printJTable(results);
+                    if (result != null) {
+                        results.add(result);
+                        printJTable(results);
+                    }
                 } catch (NumberFormatException e1) {
                     log.setLevel(Level.WARNING);
                     log.warning("Integer exception (SearchReviewsId)");
-                    outputArea.append("Please input an integer. EX: 1-2000");
+                    console.append("Please input an integer. EX: 1-2000");
                 }
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            });
         });
         topPanel.add(idSearch);
         topPanel.add(iDInput);
@@ -422,10 +561,10 @@ public class MovieReviewApp {
      * searchSubstring UI
      */
     public static void searchReviewsSubstring() {
-        outputArea.setText("");
-        outputArea.append(rh.getDatabase().size()+ " records in database.\n");
-        outputArea.append("Command 4\n");
-        outputArea.append("Please type the string to search for.\n");
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 4\n");
+        console.append("Please type the string to search for.\n");
 
         topPanel.removeAll();
         topPanel.add(commandLabel);
@@ -438,12 +577,10 @@ public class MovieReviewApp {
         //Listener that invokes search for searchbutton
         searchButton.addActionListener(e -> {
             log.info("Search button clicked. (Command 4)");
-            Runnable myRunnable = () -> {
+            runCommand("Search by substring", null, false, task -> {
                 String searcher = stringField.getText();
                 printJTable(rh.searchBySubstring(searcher));
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            });
         });
         topPanel.add(stringLabel);
         topPanel.add(stringField);
@@ -461,14 +598,110 @@ public class MovieReviewApp {
         topPanel.updateUI();
     } // END SubstringSearch UI
 
+    /**
+     * searchWords UI
+     */
+    public static void searchReviewsWords() {
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 5\n");
+        console.append("Please type the words to search for.\n");
+        console.append("Example boring AND acting NOT \"the plot\"\n");
+
+        topPanel.removeAll();
+        topPanel.add(commandLabel);
+        topPanel.add(comboBox);
+        //Query input field and label
+        final JLabel queryLabel = new JLabel("Words:", JLabel.RIGHT);
+        final JTextField queryField = new JTextField("");
+        //Button to make actions happen
+        final JButton searchButton = new JButton("Search");
+        //Listener that invokes search for searchbutton
+        searchButton.addActionListener(e -> {
+            log.info("Search button clicked. (Command 5)");
+            runCommand("Search by words", null, false, task -> {
+                try {
+                    List<MovieReview> found = rh.searchByWords(queryField.getText());
+                    if (found != null) {
+                        printJTable(found);
+                    }
+                } catch (IllegalArgumentException e1) {
+                    log.warning("Malformed query (searchReviewsWords)");
+                    console.append(e1.getMessage() + "\n");
+                }
+            });
+        });
+        topPanel.add(queryLabel);
+        topPanel.add(queryField);
+
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+
+        topPanel.add(searchButton);
+        topPanel.add(databaseButton);
+        topPanel.add(saveButton);
+        topPanel.updateUI();
+    } // END WordSearch UI
+
+    /**
+     * Re-classify UI
+     */
+    public static void reclassifyReviews() {
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 6\n");
+        console.append("Please click Confirm to rescore all reviews with the current word lists.\n");
+
+        topPanel.removeAll();
+        topPanel.add(commandLabel);
+        topPanel.add(comboBox);
+
+        final JButton reclassifyButton = new JButton("Confirm");
+        reclassifyButton.addActionListener(e -> {
+            log.info("Confirm button clicked. (Command 6)");
+            runCommand("Re-classify", "reviews", false, task -> {
+                AtomicInteger lastPercent = new AtomicInteger(-1);
+                ReclassifyStats stats = rh.reclassifyAll((done, total) -> {
+                    task.update(done, total);
+                    // Report every 10%, whichever worker gets there first
+                    int percent = (int) (done * 10 / Math.max(total, 1)) * 10;
+                    int last = lastPercent.get();
+                    if (percent > last && lastPercent.compareAndSet(last, percent)) {
+                        console.append("Rescored " + percent + "%\n");
+                    }
+                });
+                log.info("Reclassified\n" + stats);
+                console.append(stats + "\n");
+            });
+        });
+
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+        topPanel.add(new JLabel());
+
+        topPanel.add(reclassifyButton);
+        topPanel.add(databaseButton);
+        topPanel.add(saveButton);
+        topPanel.updateUI();
+    } // END reclassify UI
+
     /**
      * New Exit function to implement GUI functionality
      */
     public static void exit() {
-        outputArea.setText("");
-        outputArea.append(rh.getDatabase().size()+ " records in database.\n");
-        outputArea.append("Command 0\n");
-        outputArea.append("Please click Confirm to save and exit the system.\n");
+        console.clear();
+        console.append(rh.getDatabase().size()+ " records in database.\n");
+        console.append("Command 0\n");
+        console.append("Please click Confirm to save and exit the system.\n");
 
         topPanel.removeAll();
         topPanel.add(commandLabel);
@@ -478,14 +711,16 @@ public class MovieReviewApp {
         final JButton confirmButton = new JButton("Confirm");
         confirmButton.addActionListener(e -> {
             log.info("confirm button clicked. (Command 0)");
-            Runnable myRunnable = () -> {
+            // Stop a running load first, so the save does not wait for it
+            commands.cancelAll();
+            runCommand("Exit", null, false, task -> {
                 try {
                     rh.saveDB();
                 } catch (IOException ex) {
                     ex.printStackTrace();
                 }
-                outputArea.append("Database saved. System will be closed in 4 seconds.\n");
-                outputArea.append("Thank you for using Sentiment Analyzer!\n");
+                console.append("Database saved. System will be closed in 4 seconds.\n");
+                console.append("Thank you for using Sentiment Analyzer!\n");
 
                 log.info("Exit the database. (Command 0)");
                 try {
@@ -495,9 +730,7 @@ public class MovieReviewApp {
                 }
                 log.info("System shutdown.");
                 System.exit(0);
-            };
-            Thread thread = new Thread(myRunnable);
-            thread.start();
+            });
         });
 
         topPanel.add(new JLabel());
@@ -523,12 +756,16 @@ public class MovieReviewApp {
         //instantiate and add containers
         createTopPanel();
         createBottomPanel();
+        createStatusPanel();
 
         topPanel.getIgnoreRepaint();
         JPanel panelContainer = new JPanel();
         panelContainer.setLayout(new GridLayout(2,0));
         panelContainer.add(topPanel);
         panelContainer.add(bottomPanel);
+        JPanel windowContainer = new JPanel(new BorderLayout());
+        windowContainer.add(panelContainer, BorderLayout.CENTER);
+        windowContainer.add(statusPanel, BorderLayout.SOUTH);
 
         JFrame.setDefaultLookAndFeelDecorated(true);
         JFrame frame = new JFrame("SentimentAnalysis");
@@ -537,7 +774,8 @@ public class MovieReviewApp {
 
             public void windowClosing(WindowEvent e) {
                 log.info("Closing window.");
-                outputArea.append("Closing window. Database will be saved.\n");
+                console.append("Closing window. Database will be saved.\n");
+                commands.cancelAll();
                 super.windowClosing(e);
                 log.info("Saving database.");
                 try {
@@ -549,9 +787,9 @@ public class MovieReviewApp {
                 System.exit(0);
             }
         });
-        panelContainer.setOpaque(true);
+        windowContainer.setOpaque(true);
         frame.setBounds((width - windowsWidth) / 2,(height - windowsHeight) / 2, windowsWidth, windowsHeight);
-        frame.setContentPane(panelContainer);
+        frame.setContentPane(windowContainer);
         frame.setVisible(true);
     } // END createAndShowGui
 
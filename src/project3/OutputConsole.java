@@ -0,0 +1,159 @@
+package project3;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Buffered output for a text area. Any thread may append text: it is queued
+ * without locking, and a Swing timer moves whatever is queued into the text
+ * area in one append on the Event Dispatch Thread, at most
+ * FRAMES_PER_SECOND times a second. Ingesting a folder thus costs the GUI
+ * one document update and one scroll per frame instead of several per
+ * review.
+ * <p>
+ * The text area keeps only the last maxLines lines. Older lines are cut
+ * from the start of the document as new ones arrive, and a batch longer
+ * than the whole window is cut before it reaches the document.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class OutputConsole {
+
+    /**
+     * Constructor. Starts flushing right away.
+     * @param area The text area shown.
+     * @param maxLines Number of lines kept in the text area.
+     */
+    public OutputConsole(JTextArea area, int maxLines) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("maxLines must be positive: " + maxLines);
+        }
+        this.area = area;
+        this.maxLines = maxLines;
+        this.timer = new Timer(1000 / FRAMES_PER_SECOND, e -> flush());
+        timer.start();
+    }
+
+    /**
+     * Queues text for the text area. Safe to call from any thread.
+     * @param text The text; line breaks are part of the text.
+     */
+    public void append(String text) {
+        if (text != null && !text.isEmpty()) {
+            pending.add(text);
+        }
+    }
+
+    /**
+     * Clears the text area once the text queued so far is shown, so text
+     * appended afterwards starts on an empty area. Safe to call from any
+     * thread.
+     */
+    public void clear() {
+        pending.add(CLEAR);
+    }
+
+    /**
+     * Shows the queued text now instead of on the next frame, e.g. before
+     * the window closes. Waits for the Event Dispatch Thread unless called
+     * on it.
+     */
+    public void flushNow() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            flush();
+        } else {
+            try {
+                SwingUtilities.invokeAndWait(this::flush);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops flushing; text queued afterwards is not shown.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Moves the queued text into the text area. Runs on the Event Dispatch
+     * Thread.
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        StringBuilder batch = new StringBuilder();
+        boolean clear = false;
+        String text;
+        while ((text = pending.poll()) != null) {
+            if (text == CLEAR) {
+                batch.setLength(0);
+                clear = true;
+            } else {
+                batch.append(text);
+            }
+        }
+        int start = tailStart(batch);
+        if (clear || start > 0) {
+            // The new text alone fills the window
+            area.setText(batch.substring(start));
+        } else {
+            area.append(batch.toString());
+        }
+        trim();
+    }
+
+    /**
+     * Offset of the first of the last maxLines lines of the text.
+     */
+    private int tailStart(CharSequence text) {
+        int lines = 0;
+        for (int i = text.length() - 2; i >= 0; i--) {
+            if (text.charAt(i) == '\n' && ++lines == maxLines) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cuts the oldest lines beyond maxLines from the document.
+     */
+    private void trim() {
+        Document document = area.getDocument();
+        int excess = document.getDefaultRootElement().getElementCount() - maxLines;
+        if (excess > 0) {
+            try {
+                int end = document.getDefaultRootElement().getElement(excess - 1).getEndOffset();
+                document.remove(0, end);
+            } catch (BadLocationException e) {
+                // The offsets come from the document itself
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Most frames a second the text area is updated.
+     */
+    public static final int FRAMES_PER_SECOND = 30;
+
+    // Marks a clear in the queue; compared by identity
+    private static final String CLEAR = new String("");
+
+    private final JTextArea area;
+    private final int maxLines;
+    private final Timer timer;
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+}
@@ -0,0 +1,174 @@
+package project3;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Loads reviews with one thread per file: each entry is read, classified and
+ * inserted by its own task, with at most a fixed number of entries in
+ * flight. Sources are listed lazily, so work starts with the first entry
+ * instead of after the whole listing.
+ * <p>
+ * On a Java runtime with virtual threads (21 or later) the tasks run on
+ * virtual threads, so blocking file reads cost no platform thread. On older
+ * runtimes they fall back to a pool of platform threads, still bounded by the
+ * concurrency limit.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class PerFileIngester implements FolderIngester {
+
+    /**
+     * Constructor.
+     * @param maxConcurrency Maximum number of files processed at once.
+     */
+    public PerFileIngester(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        this.virtual = virtualThreads != null;
+        if (virtual) {
+            this.workers = virtualThreads;
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            this.workers = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "ingest-file-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Whether the tasks run on virtual threads.
+     * @return true on Java 21 or later.
+     */
+    public boolean usesVirtualThreads() {
+        return virtual;
+    }
+
+    /**
+     * Loads every entry of a source, one task per entry.
+     * @param source The review entries.
+     * @param reader Reads an entry into a review.
+     * @param classifier Classifies a review.
+     * @param sink Receives each classified review, one at a time.
+     * @return The statistics of this run.
+     * @throws IOException if the source cannot be read.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    @Override
+    public IngestStats run(ReviewSource source, ReviewReaderStage reader, ClassifierStage classifier,
+            Consumer<MovieReview> sink) throws IOException, InterruptedException {
+        IngestStats stats = new IngestStats();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        // Not a monitor: a virtual thread blocked on one pins its carrier
+        ReentrantLock sinkLock = new ReentrantLock();
+
+        try {
+            long start = System.nanoTime();
+            for (ReviewSource.Entry entry = source.next(); entry != null; entry = source.next()) {
+                stats.enumerate.record(System.nanoTime() - start);
+                // Blocks while maxConcurrency entries are in flight
+                permits.acquire();
+                ReviewSource.Entry task = entry;
+                workers.execute(() -> {
+                    try {
+                        process(task, reader, classifier, sink, sinkLock, stats);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                start = System.nanoTime();
+            }
+        } finally {
+            // Wait for the tasks still in flight, even when interrupted, so
+            // nothing is inserted after run returns
+            permits.acquireUninterruptibly(maxConcurrency);
+            permits.release(maxConcurrency);
+        }
+        stats.finish();
+        return stats;
+    }
+
+    private static void process(ReviewSource.Entry entry, ReviewReaderStage reader, ClassifierStage classifier,
+            Consumer<MovieReview> sink, ReentrantLock sinkLock, IngestStats stats) {
+        MovieReview review;
+        long start = System.nanoTime();
+        try {
+            review = reader.read(entry);
+            stats.read.record(System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            stats.read.fail();
+            log.warning("Cannot read " + entry.getPath() + ": " + e);
+            return;
+        }
+        start = System.nanoTime();
+        try {
+            review.setPredictedScore(classifier.classify(review));
+            stats.classify.record(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            stats.classify.fail();
+            log.warning("Cannot classify " + entry.getPath() + ": " + e);
+            return;
+        }
+        start = System.nanoTime();
+        try {
+            sinkLock.lock();
+            try {
+                sink.accept(review);
+            } finally {
+                sinkLock.unlock();
+            }
+            stats.insert.record(System.nanoTime() - start);
+            stats.firstReview();
+        } catch (RuntimeException e) {
+            stats.insert.fail();
+            log.warning("Cannot insert " + entry.getPath() + ": " + e);
+        }
+    }
+
+    /**
+     * Shuts down the worker threads and waits briefly for them to finish.
+     */
+    @Override
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor(), which only
+     * exists on Java 21 and later.
+     * @return The executor, or null if the runtime has no virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private final int maxConcurrency;
+    private final boolean virtual;
+    private final ExecutorService workers;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
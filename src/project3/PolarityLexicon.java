@@ -0,0 +1,188 @@
+package project3;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable lookup table of the positive and negative words. Every word is
+ * stored once, together with its polarity, in an open-addressing table whose
+ * keys live in a single char array, so a token can be classified with one
+ * probe straight from a char range, without building a String.
+ * <p>
+ * A word that appears in both word lists has both polarity bits set.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class PolarityLexicon {
+
+    /**
+     * Polarity of a word that is in neither list.
+     */
+    public static final int NEUTRAL = 0;
+
+    /**
+     * Bit set for words in the positive list.
+     */
+    public static final int POSITIVE = 1;
+
+    /**
+     * Bit set for words in the negative list.
+     */
+    public static final int NEGATIVE = 2;
+
+    /**
+     * Source of lexicon versions; declared before EMPTY, which uses it.
+     */
+    private static final AtomicInteger VERSIONS = new AtomicInteger();
+
+    /**
+     * An empty lexicon, used until the word lists are loaded.
+     */
+    public static final PolarityLexicon EMPTY = build(Set.of(), Set.of());
+
+    /**
+     * Compiles the two word lists into a lexicon.
+     * @param posWords The positive words.
+     * @param negWords The negative words.
+     * @return The compiled lexicon.
+     */
+    public static PolarityLexicon build(Set<String> posWords, Set<String> negWords) {
+        Map<String, Integer> polarities = new HashMap<>();
+        for (String word : posWords) {
+            polarities.merge(word, POSITIVE, (a, b) -> a | b);
+        }
+        for (String word : negWords) {
+            polarities.merge(word, NEGATIVE, (a, b) -> a | b);
+        }
+        return new PolarityLexicon(polarities);
+    }
+
+    private PolarityLexicon(Map<String, Integer> polarities) {
+        // Keep the table at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(4, polarities.size() * 2 - 1)) << 1;
+        mask = capacity - 1;
+        hashes = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        flags = new byte[capacity];
+
+        int totalChars = 0;
+        for (String word : polarities.keySet()) {
+            totalChars += word.length();
+        }
+        chars = new char[totalChars];
+
+        int next = 0;
+        int longest = 0;
+        for (Map.Entry<String, Integer> entry : polarities.entrySet()) {
+            String word = entry.getKey();
+            word.getChars(0, word.length(), chars, next);
+            int hash = hash(chars, next, word.length());
+            int slot = hash & mask;
+            while (flags[slot] != NEUTRAL) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            offsets[slot] = next;
+            lengths[slot] = word.length();
+            flags[slot] = (byte) (int) entry.getValue();
+            next += word.length();
+            longest = Math.max(longest, word.length());
+        }
+        size = polarities.size();
+        maxLength = longest;
+        version = VERSIONS.getAndIncrement();
+    }
+
+    /**
+     * Looks up the polarity of a token.
+     * @param token Characters holding the token.
+     * @param offset Index of the first character of the token.
+     * @param length Number of characters in the token.
+     * @return NEUTRAL, or a combination of the POSITIVE and NEGATIVE bits.
+     */
+    public int polarity(char[] token, int offset, int length) {
+        if (length > maxLength || length == 0) {
+            return NEUTRAL;
+        }
+        int hash = hash(token, offset, length);
+        int slot = hash & mask;
+        while (flags[slot] != NEUTRAL) {
+            if (hashes[slot] == hash && lengths[slot] == length
+                    && regionEquals(offsets[slot], token, offset, length)) {
+                return flags[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NEUTRAL;
+    }
+
+    /**
+     * Looks up the polarity of a word.
+     * @param word The word.
+     * @return NEUTRAL, or a combination of the POSITIVE and NEGATIVE bits.
+     */
+    public int polarity(String word) {
+        return polarity(word.toCharArray(), 0, word.length());
+    }
+
+    /**
+     * Getter method for the version of the lexicon. Every lexicon built in
+     * this process gets a new version, so results computed with one can be
+     * told apart from results computed with another.
+     * @return version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Getter method for the number of distinct words in the lexicon.
+     * @return The number of words.
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean regionEquals(int stored, char[] token, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (chars[stored + i] != token[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] token, int offset, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + token[offset + i];
+        }
+        // Spread the bits, the table is indexed with the low bits only
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * All words, back to back.
+     */
+    private final char[] chars;
+
+    private final int[] hashes;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    /**
+     * Polarity of each slot; NEUTRAL marks an empty slot.
+     */
+    private final byte[] flags;
+
+    private final int mask;
+    private final int size;
+    private final int maxLength;
+    private final int version;
+
+}
@@ -0,0 +1,133 @@
+package project3;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of a bulk re-classification: how many predicted scores changed
+ * and the accuracy over reviews with a known real class, before and after.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ReclassifyStats {
+
+    /**
+     * Receives progress while the reviews are rescored. Called from the
+     * worker threads, in no particular order.
+     */
+    public interface Progress {
+        /**
+         * Called after each batch of reviews.
+         * @param done Reviews rescored so far.
+         * @param total Reviews to rescore.
+         */
+        void update(long done, long total);
+    }
+
+    /**
+     * Starts the clock of a run.
+     * @param total Number of reviews to rescore.
+     */
+    ReclassifyStats(long total) {
+        this.total = total;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the rescoring of one review.
+     * @param real The real score of the review.
+     * @param before The predicted score before.
+     * @param after The predicted score after.
+     */
+    void record(ReviewScore real, ReviewScore before, ReviewScore after) {
+        if (before != after) {
+            changed.increment();
+        }
+        if (real == ReviewScore.POSITIVE || real == ReviewScore.NEGATIVE) {
+            known.increment();
+            if (before == real) {
+                correctBefore.increment();
+            }
+            if (after == real) {
+                correctAfter.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts finished reviews.
+     * @param reviews Reviews finished since the last call.
+     * @return Reviews finished so far.
+     */
+    long done(int reviews) {
+        done.add(reviews);
+        return done.sum();
+    }
+
+    /**
+     * Stops the clock of the run.
+     */
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Getter method for the number of reviews rescored.
+     * @return total
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Getter method for the number of reviews whose predicted score changed.
+     * @return changed
+     */
+    public long getChanged() {
+        return changed.sum();
+    }
+
+    /**
+     * Getter method for the accuracy before rescoring.
+     * @return Percentage of reviews with a known real class that were
+     * predicted correctly, or NaN if there are none.
+     */
+    public double getAccuracyBefore() {
+        return 100.0 * correctBefore.sum() / known.sum();
+    }
+
+    /**
+     * Getter method for the accuracy after rescoring.
+     * @return Percentage of reviews with a known real class that are now
+     * predicted correctly, or NaN if there are none.
+     */
+    public double getAccuracyAfter() {
+        return 100.0 * correctAfter.sum() / known.sum();
+    }
+
+    /**
+     * Getter method for the wall clock time of the run.
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d reviews rescored in %.1f ms, %d changed%n"
+                + "accuracy %.2f%% -> %.2f%% (%+.2f points)",
+                total, elapsedNanos / 1e6, getChanged(),
+                getAccuracyBefore(), getAccuracyAfter(), getAccuracyAfter() - getAccuracyBefore());
+    }
+
+    private final long total;
+    private final long startNanos;
+    private long elapsedNanos;
+
+    private final LongAdder done = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder known = new LongAdder();
+    private final LongAdder correctBefore = new LongAdder();
+    private final LongAdder correctAfter = new LongAdder();
+}
@@ -0,0 +1,123 @@
+package project3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Command line entry point for batch jobs: loads, classifies and saves
+ * reviews without the GUI, so it runs on machines without a display and
+ * never initializes AWT. Works on the database in the working directory,
+ * like the app, and accepts the same -D options.
+ * <pre>
+ * java -cp movie-review-app.jar project3.ReviewBatch &lt;posFilePath&gt; &lt;negFilePath&gt; &lt;command&gt;...
+ *
+ *   load &lt;path&gt; &lt;realClass&gt;   load a review, folder or archive (0 = Negative,
+ *                             1 = Positive, 2 = Unknown)
+ *   delete &lt;id&gt;               delete a review
+ *   reclassify                rescore every review with the current word lists
+ *   save                      save the database and fold its log into the segment
+ * </pre>
+ * Commands run in order; the database is always saved at the end. The
+ * latencies of each stage are printed at the end, and published over JMX
+ * while the job runs. With -Dquiet=true only the totals are printed.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ReviewBatch {
+
+    private ReviewBatch() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Please provide command line arguments: <posFilePath> <negFilePath> <command>...");
+            System.err.println("Commands: load <path> <realClass>, delete <id>, reclassify, save");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        boolean quiet = Boolean.getBoolean("quiet");
+        AggregatingEventSink totals = new AggregatingEventSink();
+        AtomicLong errors = new AtomicLong();
+        ReviewEventSink console = new ConsoleEventSink(System.out) {
+            @Override
+            public void error(String message) {
+                super.error(message);
+                errors.incrementAndGet();
+            }
+        };
+
+        ReviewHandler rh = new ReviewHandler();
+        rh.setEventSink(quiet ? totals : console);
+        try {
+            rh.loadPosNegWords(args[0], args[1]);
+            rh.applySystemProperties();
+            StageMetrics.registerMBeans();
+            if (databaseExists()) {
+                rh.loadDB();
+            }
+
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "load":
+                        requireArguments(args, i, 2);
+                        long start = System.nanoTime();
+                        rh.loadReviews(args[i + 1], Integer.parseInt(args[i + 2]));
+                        log.info("Loaded " + args[i + 1] + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+                        i += 2;
+                        break;
+                    case "delete":
+                        requireArguments(args, i, 1);
+                        rh.deleteReview(Integer.parseInt(args[i + 1]));
+                        i += 1;
+                        break;
+                    case "reclassify":
+                        ReclassifyStats stats = rh.reclassifyAll(null);
+                        if (!quiet) {
+                            System.out.println(stats);
+                        }
+                        break;
+                    case "save":
+                        rh.saveDB();
+                        rh.compact();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown command " + args[i]);
+                }
+            }
+            rh.saveDB();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e);
+            System.exit(1);
+        }
+        if (quiet) {
+            System.out.println(totals);
+        } else {
+            StageMetrics.mergeAll();
+            for (StageMetrics.Stage stage : StageMetrics.Stage.values()) {
+                System.out.println(StageMetrics.get(stage));
+            }
+        }
+        // A failed load is reported, not thrown; the job still fails
+        if (errors.get() + totals.getErrors() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean databaseExists() {
+        return new File(AbstractReviewHandler.DATA_FILE_NAME).exists()
+                || new File(AbstractReviewHandler.DB_SEGMENT_FILE_NAME).exists()
+                || new File(AbstractReviewHandler.LOG_FILE_NAME).exists()
+                || new File(AbstractReviewHandler.LOG_ROTATED_FILE_NAME).exists();
+    }
+
+    private static void requireArguments(String[] args, int command, int count) {
+        if (command + count >= args.length) {
+            throw new IllegalArgumentException(args[command] + " needs " + count + " argument(s)");
+        }
+    }
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
@@ -0,0 +1,125 @@
+package project3;
+
+/**
+ * Receives what a review handler has to report: imported and deleted
+ * reviews, searches without results, database loading and errors. The
+ * handler does not know how (or whether) they are shown, so it runs the same
+ * in the GUI, on a console or headless.
+ * <p>
+ * Events of a folder load are reported from the thread that called
+ * loadReviews, but other events may come from any thread, so sinks must be
+ * thread safe. Every method does nothing by default.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface ReviewEventSink {
+
+    /**
+     * A sink that ignores every event.
+     */
+    ReviewEventSink NONE = new ReviewEventSink() {
+    };
+
+    /**
+     * A folder tree or archive started loading.
+     * @param path The folder or archive.
+     */
+    default void loadStarted(String path) {
+    }
+
+    /**
+     * A single review file was imported.
+     * @param review The classified review.
+     */
+    default void reviewImported(MovieReview review) {
+    }
+
+    /**
+     * A single review file was not imported: its text is already in the
+     * database.
+     * @param review The review read from the file.
+     * @param original The review already holding the same text.
+     */
+    default void duplicateSkipped(MovieReview review, MovieReview original) {
+    }
+
+    /**
+     * A folder tree or archive was loaded.
+     * @param summary What was imported.
+     */
+    default void reviewsImported(ImportSummary summary) {
+    }
+
+    /**
+     * Loading a folder or archive was cancelled.
+     * @param path The folder or archive.
+     * @param imported Reviews imported before the load stopped.
+     */
+    default void loadCancelled(String path, long imported) {
+    }
+
+    /**
+     * A review was deleted.
+     * @param id The id of the review.
+     */
+    default void reviewDeleted(int id) {
+    }
+
+    /**
+     * A review could not be deleted: no review has this id.
+     * @param id The id.
+     */
+    default void reviewNotFound(int id) {
+    }
+
+    /**
+     * A search by id found nothing.
+     * @param id The id searched for.
+     */
+    default void noReviewFound(int id) {
+    }
+
+    /**
+     * A search by substring or by words found nothing.
+     * @param query The substring or query searched for.
+     */
+    default void noReviewsFound(String query) {
+    }
+
+    /**
+     * The database started loading.
+     */
+    default void databaseLoadStarted() {
+    }
+
+    /**
+     * A legacy text database was converted to a binary segment.
+     * @param legacyPath The legacy database.
+     * @param segmentPath The segment written.
+     */
+    default void databaseConverted(String legacyPath, String segmentPath) {
+    }
+
+    /**
+     * No database was found; the database starts empty.
+     */
+    default void databaseMissing() {
+    }
+
+    /**
+     * The database was loaded.
+     * @param reviews Number of reviews in the database.
+     * @param recoveredChanges Number of logged changes replayed on top of
+     * the segment.
+     */
+    default void databaseLoaded(int reviews, int recoveredChanges) {
+    }
+
+    /**
+     * An operation failed.
+     * @param message What went wrong.
+     */
+    default void error(String message) {
+    }
+}
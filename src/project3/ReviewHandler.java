@@ -1,31 +1,136 @@
 package project3;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Logger;
 
 
 public class ReviewHandler extends AbstractReviewHandler {
 
     private static AtomicInteger ID = new AtomicInteger(1);
 
+    /**
+     * Strategy used to load folders, shared by all loads. Defaults to the
+     * staged pipeline.
+     */
+    private FolderIngester folderIngester = new IngestPipeline();
+
+    /**
+     * Getter method for accessing the folder ingestion strategy.
+     * @return folderIngester
+     */
+    public FolderIngester getFolderIngester() {
+        return folderIngester;
+    }
+
+    /**
+     * Replaces the folder ingestion strategy, e.g. to change its parallelism
+     * or to load one file per thread. The previous one is shut down.
+     * @param folderIngester The new strategy.
+     */
+    public void setFolderIngester(FolderIngester folderIngester) {
+        FolderIngester previous = this.folderIngester;
+        this.folderIngester = folderIngester;
+        previous.shutdown();
+    }
+
+    /**
+     * Sets how the write-ahead log groups its fsyncs and when it is folded
+     * into the segment. Must be called before the database is loaded or
+     * changed.
+     * @param maxBatchRecords Records that trigger a write and fsync at once.
+     * @param maxDelayMillis Longest time a logged change waits to be fsynced.
+     * @param compactThresholdBytes Log size that starts a background compaction.
+     */
+    public void setLogPolicy(int maxBatchRecords, long maxDelayMillis, long compactThresholdBytes) {
+        this.logBatchRecords = maxBatchRecords;
+        this.logDelayMillis = maxDelayMillis;
+        this.compactThresholdBytes = compactThresholdBytes;
+    }
+
+    /**
+     * Applies the options given as system properties: -DtextCacheMB,
+     * -DtextArena, -DwalSyncBatch, -DwalSyncMillis, -DkeepDuplicates and
+     * -DperFileIngest. Must be called before the database is loaded.
+     */
+    public void applySystemProperties() {
+        // Optional lazy text mode, e.g. -DtextCacheMB=256
+        String textCacheMB = System.getProperty("textCacheMB");
+        if (textCacheMB != null) {
+            // Two bytes per cached char
+            enableLazyText(Long.parseLong(textCacheMB) * 1024 * 1024 / 2);
+        }
+        // Optional arena mode for review text and paths, -DtextArena=true
+        if (Boolean.getBoolean("textArena")) {
+            enableTextArena();
+        }
+        // Optional log fsync policy, e.g. -DwalSyncBatch=1 -DwalSyncMillis=0 to fsync every change
+        String walSyncBatch = System.getProperty("walSyncBatch");
+        String walSyncMillis = System.getProperty("walSyncMillis");
+        if (walSyncBatch != null || walSyncMillis != null) {
+            setLogPolicy(
+                    walSyncBatch == null ? DEFAULT_LOG_BATCH_RECORDS : Integer.parseInt(walSyncBatch),
+                    walSyncMillis == null ? DEFAULT_LOG_DELAY_MILLIS : Long.parseLong(walSyncMillis),
+                    DEFAULT_COMPACT_THRESHOLD_BYTES);
+        }
+        // Store re-imported reviews again instead of skipping them, -DkeepDuplicates=true
+        if (Boolean.getBoolean("keepDuplicates")) {
+            setSkipDuplicates(false);
+        }
+        // Optional one thread per file loading, e.g. -DperFileIngest=256
+        String perFileIngest = System.getProperty("perFileIngest");
+        if (perFileIngest != null) {
+            setFolderIngester(new PerFileIngester(Integer.parseInt(perFileIngest)));
+        }
+    }
+
     /**
      * Loads reviews from a given path. If the given path is a .txt file, then
      * a single review is loaded. Otherwise, if the path is a folder, all reviews
-     * in it are loaded.
+     * in it and its subfolders are loaded; if it is a .zip, .tar.gz or .tgz
+     * archive, all reviews in it are loaded without extracting it.
      * @param filePath The path to the file (or folder) containing the review(sentimentModel).
      * @param realClass The real class of the review (0 = Negative, 1 = Positive
      * 2 = Unknown).
      */
     @Override
     public void loadReviews(String filePath, int realClass) {
+        loadReviews(filePath, realClass, null);
+    }
+
+    /**
+     * Loads reviews from a given path, as loadReviews(filePath, realClass),
+     * reporting how far it has got. The entries of a folder or zip archive
+     * are counted in the background while they load, so the total is known
+     * shortly after the start. Interrupting the calling thread cancels the
+     * load; the reviews imported until then stay in the database.
+     * @param filePath The path to the file (or folder) containing the review(sentimentModel).
+     * @param realClass The real class of the review (0 = Negative, 1 = Positive
+     * 2 = Unknown).
+     * @param progress Receives the progress, or null.
+     */
+    public void loadReviews(String filePath, int realClass, IngestStats.Progress progress) {
         File fileOrFolder = new File(filePath);
         try {
-            if (fileOrFolder.isFile()) {
+            if (fileOrFolder.isFile() && !ReviewSource.isArchive(filePath)) {
                 // File
                 if (filePath.endsWith(".txt")) {
                     // Import review
@@ -33,86 +138,255 @@ public class ReviewHandler extends AbstractReviewHandler {
                     // Classify review
                     ReviewScore rs = classifyReview(review);
                     review.setPredictedScore(rs);
+                    // Claimed right before the insert, so nothing can fail in between
+                    MovieReview original = claimContent(review);
+                    if (original != null) {
+                        getEventSink().duplicateSkipped(review, original);
+                        return;
+                    }
                     // Add to getDatabase()
-                    getDatabase().put(review.getId(), review);
+                    insertClaimed(review);
                     //Output result: single file
-                    MovieReviewApp.outputArea.append("Review imported.\n");
-                    MovieReviewApp.outputArea.append("ID: " + review.getId() + "\n");
-                    MovieReviewApp.outputArea.append("Text: " + review.getText() + "\n");
-                    MovieReviewApp.outputArea.append("Real Class: " + review.getRealScore() + "\n");
-                    MovieReviewApp.outputArea.append("Classification result: " + review.getPredictedScore() + "\n");
-                    if (realClass == 2) {
-                        MovieReviewApp.outputArea.append("Real class Unknown.\n");
-                    } else if (realClass == 0 && review.getPredictedScore() == ReviewScore.NEGATIVE
-                            || realClass == 1 && review.getPredictedScore() == ReviewScore.POSITIVE) {
-                        MovieReviewApp.outputArea.append("Correctly classified.\n");
-                    } else {
-                        MovieReviewApp.outputArea.append("Misclassified.\n");
+                    getEventSink().reviewImported(review);
+                    releaseText(review);
+                    if (progress != null) {
+                        progress.update(1, 1);
                     }
-                    MovieReviewApp.outputArea.append("\n");
 
                 } else {
-                    // Cannot import non-txt files
-                    MovieReviewApp.outputArea.append("Input file path is neither a txt file nor folder.\n");
+                    // Cannot import other files
+                    getEventSink().error("Input file path is neither a txt file, an archive nor folder.");
                 }
             } else {
-                // Folder
-                MovieReviewApp.outputArea.append("Loading reviews...");
-                String[] files = fileOrFolder.list();
-                String fileSeparatorChar = System.getProperty("file.separator");
+                // Folder tree or archive: stream it through the folder ingester
+                getEventSink().loadStarted(filePath);
                 AtomicInteger counter = new AtomicInteger( 0);
-                // Create threadpool for classifying
-                BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(1024);
-                ExecutorService threadPoolExecutor = new ThreadPoolExecutor(10,40,60, TimeUnit.SECONDS, workQueue);
-                for (String fileName : files) {
-                    if (fileName.endsWith(".txt")) {
-                        Runnable myRunnable = () -> {
-                            MovieReview review = null;
-                            try {
-                                review = readReview(filePath + fileSeparatorChar + fileName, realClass);
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                            if (review == null) {
-                                return;
-                            }
-                            getDatabase().put(review.getId(), review);
-                            ReviewScore rs = classifyReview(review);
-                            review.setPredictedScore(rs);
-                            if (realClass != 2 && review.getRealScore() == review.getPredictedScore()) {
-                                counter.getAndIncrement();
-                            }
-                        };
-                        Thread thread = new Thread(myRunnable);
-                        threadPoolExecutor.execute(thread);
-                    } else {
-                        // Do nothing block
+                AtomicInteger duplicates = new AtomicInteger(0);
+                AtomicLong done = new AtomicLong();
+                AtomicBoolean loadEnded = new AtomicBoolean();
+                CompletableFuture<Long> total = progress == null
+                        ? CompletableFuture.completedFuture(-1L)
+                        : CompletableFuture.supplyAsync(() -> countEntries(fileOrFolder, loadEnded),
+                                ReviewHandler::startCounter);
+                IngestStats stats;
+                try (ReviewSource source = ReviewSource.open(fileOrFolder.toPath())) {
+                    if (source == null) {
+                        throw new FileNotFoundException(filePath + " is neither a folder nor an archive");
                     }
-                }
-                threadPoolExecutor.shutdown();
-                try {
-                    threadPoolExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MINUTES);
+                    stats = folderIngester.run(source,
+                            entry -> readReview(entry, realClass),
+                            this::classifyReview,
+                            review -> {
+                                // Numbered here, on the single insert thread, so
+                                // ids ascend in insertion order
+                                review.assignId(ID.getAndIncrement());
+                                if (claimContent(review) != null) {
+                                    duplicates.getAndIncrement();
+                                } else {
+                                    insertClaimed(review);
+                                    if (realClass != 2 && review.getRealScore() == review.getPredictedScore()) {
+                                        counter.getAndIncrement();
+                                    }
+                                    releaseText(review);
+                                }
+                                long processed = done.incrementAndGet();
+                                if (progress != null) {
+                                    progress.update(processed, total.getNow(-1L));
+                                }
+                            });
                 } catch (InterruptedException e) {
-                    MovieReviewApp.log.warning("InterruptedException " + e + "(threadpool shutdown)");
-                    e.printStackTrace();
+                    log.warning("InterruptedException " + e + " (loadReviews)");
+                    getEventSink().loadCancelled(filePath, done.get() - duplicates.get());
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    // A count still walking the folder is of no use any more
+                    loadEnded.set(true);
+                }
+                log.info("Ingested " + filePath + "\n" + stats);
+                if (getTextCache() != null && !fileOrFolder.isDirectory()) {
+                    // Move the text of the archive entries into the segment
+                    requestCompaction();
                 }
+                long entries = stats.getInserted() - duplicates.get();
 
                 // Output result: folder
-                MovieReviewApp.outputArea.append("Folder imported.\n");
-                MovieReviewApp.outputArea.append("Number of entries: " + files.length + "\n");
-
-                // Only output accuracy if real class is known
-                if (realClass != 2) {
-                    MovieReviewApp.outputArea.append("Correctly classified: " + counter + "\n");
-                    MovieReviewApp.outputArea.append("Misclassified: " + (files.length - counter.get() + "\n"));
-                    MovieReviewApp.outputArea.append("Accuracy: " + ((double)counter.get() / (double)files.length * 100) + "%\n");
-                }
+                getEventSink().reviewsImported(new ImportSummary(filePath, !fileOrFolder.isDirectory(),
+                        entries, duplicates.get(), counter.get(), realClass != 2, stats));
             }
+        } catch (ClosedByInterruptException e) {
+            // Cancelled while the calling thread read a review file
+            getEventSink().loadCancelled(filePath, 0);
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
-            MovieReviewApp.outputArea.append(e.toString() + "\n");
-            MovieReviewApp.log.warning("IOException " + e + " (loadReviews)\n");
+            getEventSink().error(e.toString());
+            log.warning("IOException " + e + " (loadReviews)\n");
+        }
+
+    }
+
+    /**
+     * Counts the review entries of a folder or archive for the progress of a
+     * load, until the load ends; a failed count only leaves the total
+     * unknown.
+     */
+    private static long countEntries(File fileOrFolder, AtomicBoolean loadEnded) {
+        try {
+            return ReviewSource.countEntries(fileOrFolder.toPath(), loadEnded::get);
+        } catch (IOException | UncheckedIOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs a count on a thread of its own: walking a folder is blocking I/O
+     * that does not belong on the common fork/join pool.
+     */
+    private static void startCounter(Runnable count) {
+        Thread thread = new Thread(count, "count-entries");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Claims the content fingerprint of a newly read review, so that later
+     * copies of its text are recognised. Unless it is a duplicate, the
+     * review counts as being loaded until insertClaimed stores it.
+     * @param review The new review.
+     * @return The stored or loading review with the same text if duplicates
+     * are skipped, otherwise null.
+     */
+    private MovieReview claimContent(MovieReview review) {
+        if (!isSkipDuplicates()) {
+            getContentIndex().claim(review.getContentHash(), review.getId());
+            return null;
+        }
+        claiming.put(review.getId(), review);
+        int holder = getContentIndex().claim(review.getContentHash(), review.getId());
+        if (holder < 0) {
+            return null;
+        }
+        // Loading first: a holder is stored before it stops loading
+        MovieReview existing = claiming.get(holder);
+        if (existing == null) {
+            existing = getDatabase().get(holder);
+        }
+        if (existing == null) {
+            // The holder failed to load or was deleted; take its place
+            getContentIndex().replace(review.getContentHash(), holder, review.getId());
+            return null;
+        }
+        // Equal fingerprints only make equal text likely
+        if (existing.getText().equals(review.getText())) {
+            claiming.remove(review.getId());
+            return existing;
         }
+        return null;
+    }
 
+    /**
+     * Inserts a review that claimContent let through, and ends its loading.
+     * @param review The review.
+     */
+    private void insertClaimed(MovieReview review) {
+        try {
+            insert(review);
+        } finally {
+            claiming.remove(review.getId());
+        }
+    }
+
+    /**
+     * Adds a review to the getDatabase() and to the trigram and word indexes.
+     * @param review The review.
+     */
+    private void insert(MovieReview review) {
+        long start = System.nanoTime();
+        try {
+            getDatabase().put(review.getId(), review);
+            getTrigramIndex().add(review.getId(), review.getText());
+            getWordIndex().add(review.getId(), review.getText());
+            // Logged after the store is updated, so a compaction that rotates
+            // the log in between still finds the review in its snapshot
+            ReviewLog wal = reviewLog();
+            wal.appendInsert(review);
+            if (wal.size() > compactThresholdBytes) {
+                requestCompaction();
+            }
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.INSERT, start);
+        }
+    }
+
+    /**
+     * Returns the write-ahead log, opening it on first use.
+     * @return The log.
+     * @throws UncheckedIOException if the log cannot be opened.
+     */
+    private synchronized ReviewLog reviewLog() {
+        if (reviewLog == null) {
+            try {
+                reviewLog = new ReviewLog(LOG_FILE_NAME, logBatchRecords, logDelayMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open " + LOG_FILE_NAME, e);
+            }
+        }
+        return reviewLog;
+    }
+
+    /**
+     * Queues a background compaction unless one is already queued.
+     */
+    private void requestCompaction() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | UncheckedIOException e) {
+                    log.warning("Compaction failed: " + e);
+                } finally {
+                    compactionQueued.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Folds the write-ahead log into the segment: the log is rotated, a
+     * snapshot of the database is written to a temporary file and renamed
+     * over the segment, and the rotated log is deleted. Changes made
+     * meanwhile go to the new log. Replaying a log over a newer snapshot
+     * gives the same database, so a crash at any point loses nothing that
+     * was durable.
+     * @throws IOException if the log or the segment cannot be written.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            reviewLog().rotate(LOG_ROTATED_FILE_NAME);
+            ReviewSegment.write(DB_SEGMENT_FILE_NAME, getDatabase().values(), getTextCache());
+            getTrigramIndex().save(TRIGRAM_FILE_NAME);
+            getWordIndex().save(WORD_INDEX_FILE_NAME);
+            Files.deleteIfExists(Paths.get(LOG_ROTATED_FILE_NAME));
+        }
+    }
+
+    /**
+     * In lazy text mode, drops the text of a classified review so that only
+     * its location stays in memory. The text of an archive entry stays until
+     * the next compaction moves it into the segment, as reading it back from
+     * the archive would mean scanning the archive; the log size bounds how
+     * much such text is held. In arena mode, moves its text and path into
+     * the arena.
+     * @param review The review.
+     */
+    private void releaseText(MovieReview review) {
+        if (getTextCache() != null) {
+            if (!ReviewSource.isArchiveEntry(review.getFilePath())) {
+                review.releaseText(getTextCache());
+            }
+        } else if (getTextArena() != null) {
+            getTextArena().store(review);
+        }
     }
 
     /**
@@ -124,25 +398,51 @@ public class ReviewHandler extends AbstractReviewHandler {
      */
     @Override
     public MovieReview readReview(String reviewFilePath, int realClass) throws IOException {
-        // Read file for text
-        Scanner inFile = new Scanner(new FileReader(reviewFilePath));
-        String text = "";
-        while (inFile.hasNextLine()) {
-            text += inFile.nextLine();
-        }
-        inFile.close();
+        MovieReview review = readUnnumbered(reviewFilePath, realClass);
+        review.assignId(ID.getAndIncrement());
+        return review;
+    }
 
-        // Remove the <br /> occurences in the text and replace them with a space
-        text = text.replaceAll("<br />"," ");
+    /**
+     * Reads a single review file without giving it an id yet.
+     * @param reviewFilePath A path to a .txt file containing a review.
+     * @param realClass The real class entered by the user.
+     * @return a MovieReview object whose id is MovieReview.NO_ID.
+     * @throws IOException if specified file cannot be opened.
+     */
+    private MovieReview readUnnumbered(String reviewFilePath, int realClass) throws IOException {
+        long start = System.nanoTime();
+        try {
+            // Read the whole file at once; <br /> occurences are replaced with a space
+            String text = ReviewReader.readText(reviewFilePath);
+
+            // Create review object with the real class; the id comes later
+            return new MovieReview(MovieReview.NO_ID, reviewFilePath,
+                    text, ReviewScore.fromInteger(realClass), ReviewScore.UNKNOWN);
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.READ, start);
+        }
+    }
 
-        // Create review object, assigning reviewIdCounter and real class
-        MovieReview review = new MovieReview(ID.getAndIncrement(), reviewFilePath,
+    /**
+     * Reads a review entry of a folder or archive. Archive entries already
+     * carry their bytes and are decoded without touching the disk. The
+     * review gets its id when it is inserted, as the readers run in parallel
+     * and would hand out ids out of order.
+     * @param entry The review entry.
+     * @param realClass The real class entered by the user.
+     * @return a MovieReview object whose id is MovieReview.NO_ID.
+     * @throws IOException if the review file cannot be opened.
+     */
+    private MovieReview readReview(ReviewSource.Entry entry, int realClass) throws IOException {
+        if (entry.getContent() == null) {
+            return readUnnumbered(entry.getPath(), realClass);
+        }
+        long start = System.nanoTime();
+        String text = ReviewReader.decode(ByteBuffer.wrap(entry.getContent()));
+        MovieReview review = new MovieReview(MovieReview.NO_ID, entry.getPath(),
                 text, ReviewScore.fromInteger(realClass), ReviewScore.UNKNOWN);
-
-        // Update reviewIdCounter
-        // THIS IS NOW DONE IN LOAD WITH THREADS
-        //setReviewIdCounter(getReviewIdCounter() + 1);
-
+        StageMetrics.record(StageMetrics.Stage.READ, start);
         return review;
     }
 
@@ -158,6 +458,41 @@ public class ReviewHandler extends AbstractReviewHandler {
      */
     @Override
     public ReviewScore classifyReview(MovieReview review){
+        long start = System.nanoTime();
+        try {
+            PolarityLexicon lexicon = getLexicon();
+            // A text already scored with this lexicon is not scored again
+            ReviewScore remembered = getClassificationMemo().get(review.getContentHash(), lexicon.getVersion());
+            if (remembered != null) {
+                return remembered;
+            }
+            // Walk the text once; each lowercased token is probed in place
+            PolarityCounter counter = new PolarityCounter(lexicon);
+            TextArena arena = getTextArena();
+            // Tokenizing includes the lexicon probes, which happen during the walk
+            long tokenizeStart = System.nanoTime();
+            if (arena != null && arena.holds(review)) {
+                // Tokenize the UTF-8 bytes in place instead of decoding them
+                arena.tokenize(review, ReviewTokenizer.forCurrentThread(), counter);
+            } else {
+                ReviewTokenizer.forCurrentThread().tokenize(review.getText(), counter);
+            }
+            StageMetrics.record(StageMetrics.Stage.TOKENIZE, tokenizeStart);
+            ReviewScore score = counter.score();
+            getClassificationMemo().put(review.getContentHash(), lexicon.getVersion(), score);
+            return score;
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.CLASSIFY, start);
+        }
+    }
+
+    /**
+     * The original regex based classifier, kept to check and measure the
+     * tokenizer against.
+     * @param review A review object.
+     * @return 0 = negative, 1 = positive.
+     */
+    ReviewScore classifyReviewLegacy(MovieReview review){
         int positive = 0;
         int negative = 0;
         // Remove the <br /> occurences in the text and replace them with a space
@@ -190,6 +525,70 @@ public class ReviewHandler extends AbstractReviewHandler {
 
     }
 
+    /**
+     * Rescores every review in parallel. The reviews are split into ranges
+     * on the common fork/join pool, whose idle workers steal ranges from busy
+     * ones. Each changed score is set with a single volatile write, so
+     * readers see either the old or the new score, and logged.
+     * @param progress Receives progress while rescoring, or null.
+     * @return What changed.
+     */
+    @Override
+    public ReclassifyStats reclassifyAll(ReclassifyStats.Progress progress) {
+        List<MovieReview> reviews = getDatabase().values();
+        ReclassifyStats stats = new ReclassifyStats(reviews.size());
+        ForkJoinPool.commonPool().invoke(new Reclassify(reviews, 0, reviews.size(), stats, progress));
+        stats.finish();
+        return stats;
+    }
+
+    /**
+     * Rescores a range of reviews, splitting it while it is large.
+     */
+    @SuppressWarnings("serial")
+    private final class Reclassify extends RecursiveAction {
+
+        Reclassify(List<MovieReview> reviews, int start, int end, ReclassifyStats stats,
+                ReclassifyStats.Progress progress) {
+            this.reviews = reviews;
+            this.start = start;
+            this.end = end;
+            this.stats = stats;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > RECLASSIFY_BATCH) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Reclassify(reviews, start, middle, stats, progress),
+                        new Reclassify(reviews, middle, end, stats, progress));
+                return;
+            }
+            ReviewLog wal = reviewLog();
+            for (int i = start; i < end; i++) {
+                MovieReview review = reviews.get(i);
+                ReviewScore before = review.getPredictedScore();
+                ReviewScore after = classifyReview(review);
+                if (after != before) {
+                    review.setPredictedScore(after);
+                    wal.appendScore(review.getId(), after);
+                }
+                stats.record(review.getRealScore(), before, after);
+            }
+            long done = stats.done(end - start);
+            if (progress != null) {
+                progress.update(done, stats.getTotal());
+            }
+        }
+
+        private final List<MovieReview> reviews;
+        private final int start;
+        private final int end;
+        private final ReclassifyStats stats;
+        private final ReclassifyStats.Progress progress;
+    }
+
     /**
      * Deletes a review from the getDatabase(), given its id.
      * @param id The id value of the review.
@@ -197,72 +596,231 @@ public class ReviewHandler extends AbstractReviewHandler {
     @Override
     public void deleteReview(int id) {
 
-        if (!getDatabase().containsKey(id)) {
+        MovieReview removed = getDatabase().remove(id);
+        if (removed == null) {
             // Review with given reviewIdCounter does not exist
-            MovieReviewApp.outputArea.append("ID " + id + " does not exist.\n");
+            getEventSink().reviewNotFound(id);
         } else {
-            getDatabase().remove(id);
-            MovieReviewApp.outputArea.append("Review with ID " + id + " deleted.\n");
+            getTrigramIndex().remove(id, removed.getText());
+            getWordIndex().remove(id);
+            getContentIndex().release(removed.getContentHash(), id);
+            reviewLog().appendDelete(id);
+            if (getTextCache() != null) {
+                getTextCache().invalidate(removed);
+            }
+            if (getTextArena() != null) {
+                getTextArena().free(removed);
+            }
+            getEventSink().reviewDeleted(id);
         }
     }
 
 
     /**
-     * Saves the getDatabase() in the working directory as a text file.
+     * Saves the getDatabase(): every change is already in the write-ahead
+     * log, so only the log is made durable. The full segment is rewritten by
+     * compaction, in the background once the log grows large.
      * @throws java.io.IOException
      */
     @Override
     public void saveDB() throws IOException {
-        PrintWriter out = new PrintWriter(DATA_FILE_NAME);
-
-        for (MovieReview mr : getDatabase().values()) {
-            out.println(mr.getId() + " @ " +
-                    mr.getFilePath() + " @ " +
-                    mr.getRealScore() + " @ " +
-                    mr.getPredictedScore());
+        long start = System.nanoTime();
+        try {
+            reviewLog().sync();
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.SAVE, start);
         }
-
-        close(out);
     }
 
     /**
-     * Loads review getDatabase().
+     * Loads review getDatabase(). The binary segment is preferred; a legacy
+     * database.txt is read once and converted into a segment.
      */
     @Override
     public void loadDB() throws IOException {
-        MovieReviewApp.outputArea.append("Reading getDatabase()...");
+        long start = System.nanoTime();
+        try {
+            readDatabase();
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.LOAD, start);
+        }
+    }
 
-        File dataFile = new File(DATA_FILE_NAME);
-        if (!dataFile.exists()) {
-            MovieReviewApp.outputArea.append("No getDatabase().txt file found. A new empty "
-                    + "getDatabase() will be created.");
+    /**
+     * Reads the segment and replays the logs into the database and the
+     * indexes; loadDB times it.
+     * @throws IOException if a database file cannot be read.
+     */
+    private void readDatabase() throws IOException {
+        getEventSink().databaseLoadStarted();
+
+        List<MovieReview> reviews;
+        boolean logged = new File(LOG_ROTATED_FILE_NAME).exists() || new File(LOG_FILE_NAME).exists();
+        if (new File(DB_SEGMENT_FILE_NAME).exists()) {
+            reviews = ReviewSegment.read(DB_SEGMENT_FILE_NAME, getTextCache());
+        } else if (new File(DATA_FILE_NAME).exists()) {
+            // Each row reads its review file: blocking I/O, so a pool of its
+            // own with more threads than cores rather than the common pool
+            ForkJoinPool legacyReaders = new ForkJoinPool(LEGACY_READ_THREADS);
+            try {
+                reviews = ReviewSegment.readLegacyParallel(DATA_FILE_NAME, legacyReaders);
+            } finally {
+                legacyReaders.shutdown();
+            }
+            ReviewSegment.write(DB_SEGMENT_FILE_NAME, reviews, getTextCache());
+            getEventSink().databaseConverted(DATA_FILE_NAME, DB_SEGMENT_FILE_NAME);
+        } else if (logged) {
+            reviews = new ArrayList<>();
+        } else {
+            getEventSink().databaseMissing();
             return;
         }
 
-        Scanner inFile = new Scanner(new FileReader(DATA_FILE_NAME));
+        int replayed = 0;
+        if (logged) {
+            // Changes since the last compaction, oldest log first
+            Map<Integer, MovieReview> byId = new LinkedHashMap<>();
+            for (MovieReview mr : reviews) {
+                byId.put(mr.getId(), mr);
+            }
+            ReviewLog.Replay replay = new ReviewLog.Replay() {
+                @Override
+                public void insert(MovieReview review) {
+                    byId.put(review.getId(), review);
+                }
+
+                @Override
+                public void delete(int id) {
+                    byId.remove(id);
+                }
 
-        String line = "";
-        while (inFile.hasNextLine()) {
-            line = inFile.nextLine();
-            String[] lineParts = line.split(" @ ");
-            int id = Integer.parseInt(lineParts[0]);
-            String filePath = lineParts[1];
-            String text = readReview(filePath, 0).getText();
-            ReviewScore realScore = ReviewScore.fromString(lineParts[2]);
-            ReviewScore predictedScore = ReviewScore.fromString(lineParts[3]);
+                @Override
+                public void score(int id, ReviewScore predictedScore) {
+                    MovieReview review = byId.get(id);
+                    if (review != null) {
+                        review.setPredictedScore(predictedScore);
+                    }
+                }
+            };
+            for (String logFile : new String[] {LOG_ROTATED_FILE_NAME, LOG_FILE_NAME}) {
+                if (new File(logFile).exists()) {
+                    replayed += ReviewLog.replay(logFile, replay);
+                }
+            }
+            reviews = new ArrayList<>(byId.values());
+        }
+        // The segment keeps the store's order; the word index only appends
+        // postings cheaply when the ids come in ascending order
+        reviews.sort(Comparator.comparingInt(MovieReview::getId));
 
-            MovieReview mr = new MovieReview(id, filePath, text, realScore, predictedScore);
-            getDatabase().put(id, mr);
+        for (MovieReview mr : reviews) {
+            getDatabase().put(mr.getId(), mr);
+            getContentIndex().claim(mr.getContentHash(), mr.getId());
+        }
+        // Whatever index is not loaded is rebuilt in one pass over the text
+        TrigramIndex trigramIndex = loadTrigramIndex();
+        TrigramIndex rebuiltTrigrams = trigramIndex == null ? new TrigramIndex() : null;
+        WordIndex wordIndex = loadWordIndex();
+        WordIndex rebuiltWords = wordIndex == null ? new WordIndex() : null;
+        if (rebuiltTrigrams != null || rebuiltWords != null) {
+            forEachText(reviews, (text, id) -> {
+                if (rebuiltWords != null) {
+                    rebuiltWords.add(id, text);
+                }
+                if (rebuiltTrigrams != null) {
+                    rebuiltTrigrams.add(id, text);
+                }
+            });
+        }
+        setTrigramIndex(trigramIndex != null ? trigramIndex : rebuiltTrigrams);
+        setWordIndex(wordIndex != null ? wordIndex : rebuiltWords);
+        if (getTextArena() != null) {
+            for (MovieReview mr : reviews) {
+                getTextArena().store(mr);
+            }
         }
 
         // Set the reviewIdCounter to be one greater than the largest id in the database().
-        if (getDatabase().keySet().size() > 0) {
-            int currMaxId = Collections.max(getDatabase().keySet());
+        if (getDatabase().size() > 0) {
+            int currMaxId = getDatabase().maxId();
             setReviewIdCounter(currMaxId + 1);
             ID.set(currMaxId + 1);
         }
-        close(inFile);
-        MovieReviewApp.outputArea.append("Done.\n");
+        if (replayed > 0) {
+            // Fold the recovered changes into the segment
+            compact();
+        }
+        getEventSink().databaseLoaded(getDatabase().size(), replayed);
+    }
+
+    /**
+     * Reads the persisted trigram index, unless it is missing or was saved
+     * for a different set of reviews.
+     * @return The index, or null if it must be rebuilt.
+     */
+    private TrigramIndex loadTrigramIndex() {
+        if (new File(TRIGRAM_FILE_NAME).exists()) {
+            try {
+                TrigramIndex index = TrigramIndex.load(TRIGRAM_FILE_NAME);
+                if (index.matches(getDatabase().ids())) {
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warning("IOException " + e + " (loadTrigramIndex)");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the persisted word index, unless it is missing or was saved for
+     * a different set of reviews.
+     * @return The index, or null if it must be rebuilt.
+     */
+    private WordIndex loadWordIndex() {
+        if (new File(WORD_INDEX_FILE_NAME).exists()) {
+            try {
+                WordIndex index = WordIndex.load(WORD_INDEX_FILE_NAME);
+                if (index.matches(getDatabase().ids())) {
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warning("IOException " + e + " (loadWordIndex)");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands the text of every review to a visitor. In lazy text mode the
+     * text still in the segment is streamed from it in file order, so
+     * memory stays bounded and the file is read once, sequentially; only
+     * the reviews replayed from the log have their text resident.
+     * @param reviews The reviews, in ascending id order.
+     * @param visitor Receives the text and the id of each review.
+     * @throws IOException if the segment cannot be read.
+     */
+    private void forEachText(List<MovieReview> reviews, ObjIntConsumer<String> visitor) throws IOException {
+        ReviewTextCache cache = getTextCache();
+        BitSet inSegment = new BitSet();
+        List<MovieReview> resident = new ArrayList<>();
+        for (MovieReview mr : reviews) {
+            if (cache != null && mr.getTextStore() == cache && mr.getTextOffset() >= 0) {
+                inSegment.set(mr.getId());
+            } else {
+                resident.add(mr);
+            }
+        }
+        if (!inSegment.isEmpty()) {
+            ReviewSegment.forEachText(DB_SEGMENT_FILE_NAME, (text, id) -> {
+                if (inSegment.get(id)) {
+                    visitor.accept(text, id);
+                }
+            });
+        }
+        for (MovieReview mr : resident) {
+            visitor.accept(mr.getText(), mr.getId());
+        }
     }
 
     /**
@@ -273,11 +831,17 @@ public class ReviewHandler extends AbstractReviewHandler {
      */
     @Override
     public MovieReview searchById(int id) {
-        if (getDatabase().containsKey(id)) {
-            return getDatabase().get(id);
+        long start = System.nanoTime();
+        try {
+            MovieReview review = getDatabase().get(id);
+            if (review != null) {
+                return review;
+            }
+            getEventSink().noReviewFound(id);
+            return null;
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.SEARCH, start);
         }
-        MovieReviewApp.outputArea.append("No review found.\n");
-        return null;
     }
 
     /**
@@ -287,20 +851,154 @@ public class ReviewHandler extends AbstractReviewHandler {
      */
     @Override
     public List<MovieReview> searchBySubstring(String substring) {
-        List<MovieReview> tempList = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            List<MovieReview> tempList = new ArrayList<>();
+            TextArena arena = getTextArena();
+            byte[] needle = substring.getBytes(StandardCharsets.UTF_8);
+
+            int[] candidates = getTrigramIndex().candidates(substring);
+            if (candidates == null) {
+                // Too short for the index, check every review
+                getDatabase().forEach(review -> {
+                    if (contains(arena, review, substring, needle)) {
+                        tempList.add(review);
+                    }
+                });
+            } else {
+                for (int id : candidates) {
+                    MovieReview review = getDatabase().get(id);
+                    if (review != null && contains(arena, review, substring, needle)) {
+                        tempList.add(review);
+                    }
+                }
+            }
+            if (!tempList.isEmpty()) {
+                return tempList;
+            } else {
+                // No review has given substring
+                getEventSink().noReviewsFound(substring);
+                return null;
+            }
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.SEARCH, start);
+        }
+    }
 
-        for (Map.Entry<Integer, MovieReview> entry : getDatabase().entrySet()){
-            if (entry.getValue().getText().contains(substring)) {
-                tempList.add(entry.getValue());
+    /**
+     * Whether the text of a review contains a substring, matching the UTF-8
+     * bytes in place when the review lives in the arena.
+     */
+    private static boolean contains(TextArena arena, MovieReview review, String substring, byte[] needle) {
+        if (arena != null && arena.holds(review)) {
+            return arena.contains(review, needle);
+        }
+        return review.getText().contains(substring);
+    }
+
+    /**
+     * Searches the review getDatabase() by words, using the word index.
+     * @param query The query, e.g. boring AND acting NOT plot.
+     * @return A list of review objects matching the query.
+     */
+    @Override
+    public List<MovieReview> searchByWords(String query) {
+        long start = System.nanoTime();
+        try {
+            List<MovieReview> tempList = new ArrayList<>();
+            for (int id : getWordIndex().search(query)) {
+                MovieReview review = getDatabase().get(id);
+                if (review != null) {
+                    tempList.add(review);
+                }
+            }
+            if (!tempList.isEmpty()) {
+                return tempList;
+            } else {
+                getEventSink().noReviewsFound(query);
+                return null;
             }
+        } finally {
+            StageMetrics.record(StageMetrics.Stage.SEARCH, start);
         }
-        if (!tempList.isEmpty()) {
-            return tempList;
-        } else {
-            // No review has given substring
-            MovieReviewApp.outputArea.append("No review(s) found.\n");
-            return null;
+    }
+
+    /**
+     * Write-ahead log of inserts and deletions, opened on first use.
+     */
+    private ReviewLog reviewLog;
+
+    private int logBatchRecords = DEFAULT_LOG_BATCH_RECORDS;
+    private long logDelayMillis = DEFAULT_LOG_DELAY_MILLIS;
+    private long compactThresholdBytes = DEFAULT_COMPACT_THRESHOLD_BYTES;
+
+    /**
+     * Default log policy: fsync every 256 changes or 20 ms, compact past 64 MB.
+     */
+    static final int DEFAULT_LOG_BATCH_RECORDS = 256;
+    static final long DEFAULT_LOG_DELAY_MILLIS = 20;
+    static final long DEFAULT_COMPACT_THRESHOLD_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Runs background compactions, one at a time.
+     */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "wal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    /**
+     * Largest range of reviews rescored by one fork/join task.
+     */
+    private static final int RECLASSIFY_BATCH = 512;
+
+    /**
+     * Threads reading the review files of a legacy database.txt.
+     */
+    private static final int LEGACY_READ_THREADS =
+            Math.min(32, 4 * Runtime.getRuntime().availableProcessors());
+    private final Object compactionLock = new Object();
+
+    /**
+     * Reviews that hold a content fingerprint but are not stored yet, by id.
+     */
+    private final Map<Integer, MovieReview> claiming = new ConcurrentHashMap<>();
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+
+    /**
+     * Counts positive and negative tokens as the tokenizer hands them over.
+     */
+    private static final class PolarityCounter implements ReviewTokenizer.TokenVisitor {
+
+        PolarityCounter(PolarityLexicon lexicon) {
+            this.lexicon = lexicon;
+        }
+
+        @Override
+        public void visit(char[] token, int length) {
+            int polarity = lexicon.polarity(token, 0, length);
+            if ((polarity & PolarityLexicon.POSITIVE) != 0) {
+                positive++;
+            }
+            if ((polarity & PolarityLexicon.NEGATIVE) != 0) {
+                negative++;
+            }
+        }
+
+        ReviewScore score() {
+            if (positive > negative) {
+                return ReviewScore.POSITIVE;
+            } else if (positive < negative) {
+                return ReviewScore.NEGATIVE;
+            }
+            return ReviewScore.UNKNOWN;
         }
 
+        private final PolarityLexicon lexicon;
+        private int positive;
+        private int negative;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,556 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of database changes. Every inserted review and
+ * every deletion is appended as it happens; together with the last segment
+ * the log describes the whole database, so saving only has to make the log
+ * durable instead of rewriting every review.
+ * <p>
+ * Appends only copy the record into a buffer. A writer thread writes and
+ * fsyncs the buffered records as one group, as soon as maxBatchRecords are
+ * waiting or the oldest has waited maxDelayMillis, or when sync() is
+ * called. A record is durable once it has been fsynced.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ *   int    magic "MRWL"
+ *   int    format version
+ *   record*:
+ *     int  body length
+ *     int  CRC-32 of the body
+ *     body:
+ *       byte op (INSERT, DELETE or SCORE)
+ *       int  id
+ *       INSERT only: byte real score, byte predicted score,
+ *                    int path length, UTF-8 path bytes,
+ *                    int text length, UTF-8 text bytes
+ *       SCORE only:  byte predicted score
+ * </pre>
+ * A record torn by a crash fails its length or CRC check; replay stops
+ * there and reopening the log cuts it off. For the same reason the log
+ * stops at the first failed write: records written after a torn one would
+ * be cut off with it, so appends, sync and rotate fail from then on.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ReviewLog implements Closeable {
+
+    /**
+     * Receives the records of a log, in order.
+     */
+    public interface Replay {
+        /**
+         * Called for an insert record.
+         * @param review The inserted review, with its text resident.
+         */
+        void insert(MovieReview review);
+
+        /**
+         * Called for a delete record.
+         * @param id The id of the deleted review.
+         */
+        void delete(int id);
+
+        /**
+         * Called for a score record.
+         * @param id The id of the rescored review.
+         * @param predictedScore Its new predicted score.
+         */
+        void score(int id, ReviewScore predictedScore);
+    }
+
+    /**
+     * Opens a log for appending, creating it if needed. A torn record at the
+     * end of an existing log is cut off.
+     * @param logPath Path of the log file.
+     * @param maxBatchRecords Records that trigger a write and fsync at once.
+     * @param maxDelayMillis Longest time a record waits to be fsynced.
+     * @throws IOException if the log cannot be opened.
+     */
+    public ReviewLog(String logPath, int maxBatchRecords, long maxDelayMillis) throws IOException {
+        if (maxBatchRecords < 1 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("maxBatchRecords must be positive, maxDelayMillis not negative");
+        }
+        this.path = Paths.get(logPath);
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.channel = open(path);
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends an insert record.
+     * @param review The inserted review, with its text resident.
+     * @throws UncheckedIOException if an earlier write of the log failed.
+     */
+    public void appendInsert(MovieReview review) {
+        byte[] path = review.getFilePath().getBytes(StandardCharsets.UTF_8);
+        byte[] text = review.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + 1 + 1 + 4 + path.length + 4 + text.length);
+        body.put(INSERT).putInt(review.getId());
+        body.put((byte) scoreCode(review.getRealScore()));
+        body.put((byte) scoreCode(review.getPredictedScore()));
+        body.putInt(path.length).put(path);
+        body.putInt(text.length).put(text);
+        append(body.array());
+    }
+
+    /**
+     * Appends a delete record.
+     * @param id The id of the deleted review.
+     * @throws UncheckedIOException if an earlier write of the log failed.
+     */
+    public void appendDelete(int id) {
+        append(ByteBuffer.allocate(1 + 4).put(DELETE).putInt(id).array());
+    }
+
+    /**
+     * Appends a score record, for a review whose predicted score changed.
+     * @param id The id of the review.
+     * @param predictedScore Its new predicted score.
+     * @throws UncheckedIOException if an earlier write of the log failed.
+     */
+    public void appendScore(int id, ReviewScore predictedScore) {
+        append(ByteBuffer.allocate(1 + 4 + 1).put(SCORE).putInt(id)
+                .put((byte) scoreCode(predictedScore)).array());
+    }
+
+    /**
+     * Writes and fsyncs every record appended so far and waits until they
+     * are durable.
+     * @throws IOException if the log cannot be written.
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            awaitDurable(appended);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Getter method for the size of the log, including records not yet
+     * written.
+     * @return The size in bytes.
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return fileSize + pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the records logged so far to another file and continues with an
+     * empty log. If that file already exists, from an earlier rotation whose
+     * compaction did not finish, the records are appended to it instead.
+     * Appends wait while the log is being rotated.
+     * @param rotatedPath The file that receives the records.
+     * @throws IOException if the log cannot be rotated.
+     */
+    public void rotate(String rotatedPath) throws IOException {
+        Path rotated = Paths.get(rotatedPath);
+        lock.lock();
+        try {
+            awaitDurable(appended);
+            channel.close();
+            if (Files.exists(rotated)) {
+                byte[] records = Files.readAllBytes(path);
+                try (FileChannel target = FileChannel.open(rotated, StandardOpenOption.WRITE)) {
+                    long valid = validLength(rotated);
+                    target.truncate(valid);
+                    target.position(valid);
+                    target.write(ByteBuffer.wrap(records, HEADER_SIZE, records.length - HEADER_SIZE));
+                    target.force(false);
+                }
+                Files.delete(path);
+            } else {
+                Files.move(path, rotated, StandardCopyOption.ATOMIC_MOVE);
+            }
+            channel = open(path);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining records and stops the writer thread. The thread
+     * stops and the file is closed even if the records cannot be written.
+     * @throws IOException if the remaining records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // The writer still writes what is pending, then returns
+            closed = true;
+            wake.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sync();
+        } finally {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the records of a log file.
+     * @param logPath Path of the log file.
+     * @param replay Receives each record.
+     * @return The number of records read.
+     * @throws IOException if the file cannot be read or is not a log.
+     */
+    public static int replay(String logPath, Replay replay) throws IOException {
+        return (int) scan(Paths.get(logPath), replay)[1];
+    }
+
+    private void append(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Log " + path + " is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(writeFailed());
+            }
+            ensurePending(pendingCount + RECORD_HEADER_SIZE + body.length);
+            ByteBuffer.wrap(pending, pendingCount, RECORD_HEADER_SIZE)
+                    .putInt(body.length).putInt((int) crc.getValue());
+            System.arraycopy(body, 0, pending, pendingCount + RECORD_HEADER_SIZE, body.length);
+            pendingCount += RECORD_HEADER_SIZE + body.length;
+            if (pendingRecords == 0) {
+                oldestPending = System.nanoTime();
+            }
+            pendingRecords++;
+            appended++;
+            if (pendingRecords >= maxBatchRecords) {
+                wake.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the given number of records is durable. Called with the
+     * lock held.
+     */
+    private void awaitDurable(long target) throws IOException {
+        while (durable < target && failure == null) {
+            syncRequested = true;
+            wake.signal();
+            durableChanged.awaitUninterruptibly();
+        }
+        if (failure != null) {
+            throw writeFailed();
+        }
+    }
+
+    private IOException writeFailed() {
+        return new IOException("Cannot write log " + path, failure);
+    }
+
+    /**
+     * Writer thread: waits for a group of records, then writes and fsyncs it
+     * without holding the lock, so appends go on meanwhile.
+     */
+    private void writeLoop() {
+        byte[] batch = new byte[pending.length];
+        while (true) {
+            int length;
+            long batchEnd;
+            lock.lock();
+            try {
+                while (!readyToWrite()) {
+                    if (closed && pendingRecords == 0) {
+                        return;
+                    }
+                    try {
+                        if (pendingRecords == 0) {
+                            wake.await();
+                        } else {
+                            wake.awaitNanos(oldestPending + maxDelayNanos - System.nanoTime());
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                // Swap buffers: appends continue into the other one
+                byte[] filled = pending;
+                pending = batch.length >= filled.length ? batch : new byte[filled.length];
+                batch = filled;
+                length = pendingCount;
+                batchEnd = appended;
+                pendingCount = 0;
+                pendingRecords = 0;
+                syncRequested = false;
+            } finally {
+                lock.unlock();
+            }
+
+            Throwable error = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+                log.warning("Cannot write log " + path + ": " + e);
+            }
+
+            lock.lock();
+            try {
+                if (error == null) {
+                    durable = batchEnd;
+                    fileSize += length;
+                } else {
+                    failure = error;
+                }
+                durableChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                // The file may end in a torn record now; anything written
+                // after it would be cut off with it when the log is reopened
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warning("Cannot close log " + path + ": " + e);
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean readyToWrite() {
+        if (pendingRecords == 0) {
+            return false;
+        }
+        return syncRequested || closed || pendingRecords >= maxBatchRecords
+                || System.nanoTime() - oldestPending >= maxDelayNanos;
+    }
+
+    private void ensurePending(int capacity) {
+        if (capacity > pending.length) {
+            byte[] grown = new byte[Math.max(capacity, pending.length * 2)];
+            System.arraycopy(pending, 0, grown, 0, pendingCount);
+            pending = grown;
+        }
+    }
+
+    /**
+     * Opens the log for appending, writing the header of a new log or
+     * cutting a torn record off an existing one.
+     */
+    private FileChannel open(Path logPath) throws IOException {
+        FileChannel opened = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (opened.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            opened.write(header);
+            opened.force(true);
+        } else {
+            long valid = validLength(logPath);
+            if (valid < opened.size()) {
+                log.warning("Cutting torn record off log " + logPath + " at " + valid);
+                opened.truncate(valid);
+            }
+        }
+        fileSize = opened.size();
+        opened.position(fileSize);
+        return opened;
+    }
+
+    private static long validLength(Path logPath) throws IOException {
+        return scan(logPath, null)[0];
+    }
+
+    /**
+     * Reads a log up to its first torn record.
+     * @return The length of the valid part and the number of records.
+     */
+    private static long[] scan(Path logPath, Replay replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(logPath.toFile()), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + logPath + " is not a review log");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("File " + logPath + " has unsupported version " + version);
+            }
+            long valid = HEADER_SIZE;
+            long records = 0;
+            long fileLength = Files.size(logPath);
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 5 || length > fileLength - valid - RECORD_HEADER_SIZE) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    CRC32 crc = new CRC32();
+                    crc.update(body, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                if (replay != null) {
+                    apply(body, replay);
+                }
+                valid += RECORD_HEADER_SIZE + body.length;
+                records++;
+            }
+            return new long[] {valid, records};
+        }
+    }
+
+    private static void apply(byte[] body, Replay replay) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        byte op = in.get();
+        int id = in.getInt();
+        if (op == DELETE) {
+            replay.delete(id);
+        } else if (op == SCORE) {
+            replay.score(id, scoreFromCode(in.get()));
+        } else if (op == INSERT) {
+            ReviewScore real = scoreFromCode(in.get());
+            ReviewScore predicted = scoreFromCode(in.get());
+            String filePath = readString(in);
+            String text = readString(in);
+            replay.insert(new MovieReview(id, filePath, text, real, predicted));
+        } else {
+            throw new IOException("Corrupt review log: operation " + op);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int scoreCode(ReviewScore score) {
+        return (score == null ? ReviewScore.UNKNOWN : score).toInteger();
+    }
+
+    private static ReviewScore scoreFromCode(byte b) throws IOException {
+        ReviewScore score = ReviewScore.fromInteger(b);
+        if (score == null) {
+            throw new IOException("Corrupt review log: unknown score " + b);
+        }
+        return score;
+    }
+
+    private final Path path;
+    private final int maxBatchRecords;
+    private final long maxDelayNanos;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when records are waiting for the writer.
+     */
+    private final Condition wake = lock.newCondition();
+
+    /**
+     * Signalled when a group of records became durable or failed.
+     */
+    private final Condition durableChanged = lock.newCondition();
+
+    private FileChannel channel;
+
+    /**
+     * Records appended but not yet handed to the writer.
+     */
+    private byte[] pending = new byte[BUFFER_SIZE];
+    private int pendingCount;
+    private int pendingRecords;
+    private long oldestPending;
+
+    /**
+     * Number of records appended and number known to be durable.
+     */
+    private long appended;
+    private long durable;
+
+    private long fileSize;
+    private boolean syncRequested;
+    private boolean closed;
+    private Throwable failure;
+
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte SCORE = 3;
+
+    /**
+     * "MRWL" in ASCII.
+     */
+    private static final int MAGIC = 0x4D52574C;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Size of magic and version.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of the length and CRC in front of each record body.
+     */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
@@ -0,0 +1,201 @@
+package project3;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+/**
+ * Bulk reader for review files. A whole file is pulled through a FileChannel
+ * in one go (memory-mapped when it is large), decoded once, and the line
+ * breaks and "&lt;br /&gt;" tags are stripped in place before the final
+ * String is built.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ReviewReader {
+
+    private ReviewReader() {
+    }
+
+    /**
+     * Reads the text of a review file.
+     * @param reviewFilePath A path to a .txt file containing a review, or
+     * "archive!/entry" for a review inside a zip or tar.gz archive.
+     * @return The review text, with line breaks removed and "&lt;br /&gt;"
+     * replaced by a space.
+     * @throws IOException if specified file cannot be opened.
+     */
+    public static String readText(String reviewFilePath) throws IOException {
+        int separator = reviewFilePath.indexOf(ReviewSource.ARCHIVE_SEPARATOR);
+        if (separator > 0 && ReviewSource.isArchive(reviewFilePath.substring(0, separator))) {
+            // Review loaded from an archive: "archive!/entry"
+            byte[] content = ReviewSource.readArchiveEntry(reviewFilePath.substring(0, separator),
+                    reviewFilePath.substring(separator + ReviewSource.ARCHIVE_SEPARATOR.length()));
+            return decode(ByteBuffer.wrap(content));
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(reviewFilePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + reviewFilePath + " is too large");
+            }
+            if (size >= MAP_THRESHOLD) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return decode(mapped);
+            }
+            ByteBuffer buffer = pooledBuffer((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the file is exhausted
+            }
+            buffer.flip();
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Reads the text of a review file.
+     * @param reviewFile The review file.
+     * @return The review text.
+     * @throws IOException if specified file cannot be opened.
+     */
+    public static String readText(Path reviewFile) throws IOException {
+        return readText(reviewFile.toString());
+    }
+
+    /**
+     * Decodes UTF-8 review bytes and strips line breaks and "&lt;br /&gt;" tags.
+     * @param bytes The raw bytes of a review file, from position to limit.
+     * @return The review text.
+     */
+    public static String decode(ByteBuffer bytes) {
+        CharBuffer chars = charBuffer(bytes.remaining());
+        CharsetDecoder decoder = DECODER.get();
+        decoder.reset();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return strip(chars.array(), chars.limit());
+    }
+
+    /**
+     * Removes line terminators and replaces every "&lt;br /&gt;" with a space,
+     * in place. Like readTextLegacy, the lines are joined first, so a tag
+     * split across a line break is replaced too.
+     * @param in The decoded characters.
+     * @param length The number of valid characters in the array.
+     * @return The cleaned text.
+     */
+    static String strip(char[] in, int length) {
+        int joined = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isLineTerminator(in[i])) {
+                in[joined++] = in[i];
+            }
+        }
+        int out = 0;
+        int i = 0;
+        while (i < joined) {
+            if (in[i] == '<' && matchesBreak(in, i, joined)) {
+                in[out++] = ' ';
+                i += BREAK_TAG.length();
+            } else {
+                in[out++] = in[i++];
+            }
+        }
+        return new String(in, 0, out);
+    }
+
+    /**
+     * The same line terminators Scanner.nextLine() drops.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean matchesBreak(char[] in, int from, int length) {
+        if (from + BREAK_TAG.length() > length) {
+            return false;
+        }
+        for (int j = 1; j < BREAK_TAG.length(); j++) {
+            if (in[from + j] != BREAK_TAG.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The original reader: a Scanner over a FileReader, concatenating lines and
+     * running a regex replace. Kept so both paths can be measured side by side.
+     * @param reviewFilePath A path to a .txt file containing a review.
+     * @return The review text.
+     * @throws IOException if specified file cannot be opened.
+     */
+    static String readTextLegacy(String reviewFilePath) throws IOException {
+        Scanner inFile = new Scanner(new FileReader(reviewFilePath));
+        String text = "";
+        while (inFile.hasNextLine()) {
+            text += inFile.nextLine();
+        }
+        inFile.close();
+        return text.replaceAll("<br />", " ");
+    }
+
+    private static ByteBuffer pooledBuffer(int size) {
+        ByteBuffer buffer = BYTES.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+            BYTES.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    private static CharBuffer charBuffer(int byteCount) {
+        // UTF-8 never decodes to more chars than it has bytes
+        if (byteCount >= MAP_THRESHOLD) {
+            // Mapped files are rare; do not pin a huge buffer to the thread
+            return CharBuffer.allocate(byteCount);
+        }
+        CharBuffer buffer = CHARS.get();
+        if (buffer.capacity() < byteCount) {
+            buffer = CharBuffer.allocate(Integer.highestOneBit(byteCount) << 1);
+            CHARS.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Files at least this large are memory-mapped instead of copied into the
+     * pooled buffer.
+     */
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    private static final String BREAK_TAG = "<br />";
+
+    /**
+     * Per-thread direct buffer reused across reads.
+     */
+    private static final ThreadLocal<ByteBuffer> BYTES =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(16 * 1024));
+
+    private static final ThreadLocal<CharBuffer> CHARS =
+            ThreadLocal.withInitial(() -> CharBuffer.allocate(16 * 1024));
+
+    private static final ThreadLocal<CharsetDecoder> DECODER =
+            ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+}
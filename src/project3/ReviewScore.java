@@ -7,25 +7,40 @@ package project3;
  * @author Dike
  */
 public enum ReviewScore {
-    NEGATIVE {
+    NEGATIVE(0) {
         @Override
         public String toString() {
             return "Negative";
         }
     },
-    POSITIVE {
+    POSITIVE(1) {
         @Override
         public String toString() {
             return "Positive";
         }
     },
-    UNKNOWN {
+    UNKNOWN(2) {
         @Override
         public String toString() {
             return "Unknown";
         }
     };
 
+    ReviewScore(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the int value of the score (0, 1, 2). Unlike ordinal() it
+     * stays the same when constants are added or reordered, so it is what
+     * the database files store.
+     *
+     * @return The value accepted by fromInteger.
+     */
+    public int toInteger() {
+        return code;
+    }
+
     /**
      * Returns an enum value for a given int value (0, 1, 2)
      *
@@ -61,4 +76,6 @@ public enum ReviewScore {
         }
         return null;
     }
+
+    private final int code;
 }
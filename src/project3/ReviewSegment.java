@@ -0,0 +1,427 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Self-contained binary database file. A segment holds every review with its
+ * id, scores, file path and text, so loading it never touches the original
+ * review files.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ *   int    magic "MRDB"
+ *   int    format version
+ *   int    number of records
+ *   record*:
+ *     int  id
+ *     byte real score (ReviewScore.toInteger)
+ *     byte predicted score (ReviewScore.toInteger)
+ *     long content fingerprint (since version 2)
+ *     int  path length, UTF-8 path bytes
+ *     int  text length, UTF-8 text bytes
+ * </pre>
+ * Storing the fingerprint lets a database loaded in lazy text mode detect
+ * duplicates without reading back the text of every review. Version 1 files
+ * are still read; their fingerprints are computed when first needed.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ReviewSegment {
+
+    private ReviewSegment() {
+    }
+
+    /**
+     * Writes the reviews to a segment file. The file is written next to the
+     * target and then moved over it, so a crash never leaves a truncated
+     * segment behind.
+     * @param segmentPath Path of the segment file.
+     * @param reviews The reviews to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(String segmentPath, Collection<MovieReview> reviews) throws IOException {
+        write(segmentPath, new ArrayList<>(reviews), null);
+    }
+
+    /**
+     * Writes the reviews to a segment file, then, in lazy text mode, points
+     * the reviews at their text in the new file.
+     * @param segmentPath Path of the segment file.
+     * @param reviews The reviews to write; must not change while writing.
+     * @param textCache The store of the text in lazy text mode, which must
+     * read segmentPath, or null.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(String segmentPath, List<MovieReview> reviews,
+            ReviewTextCache textCache) throws IOException {
+        Path target = Paths.get(segmentPath);
+        Path temp = Paths.get(segmentPath + ".tmp");
+        long[] offsets = new long[reviews.size()];
+        int[] lengths = new int[reviews.size()];
+        long position = HEADER_SIZE;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp.toFile()), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(reviews.size());
+            for (int i = 0; i < reviews.size(); i++) {
+                MovieReview mr = reviews.get(i);
+                out.writeInt(mr.getId());
+                out.writeByte(scoreCode(mr.getRealScore()));
+                out.writeByte(scoreCode(mr.getPredictedScore()));
+                out.writeLong(mr.getContentHash());
+                byte[] path = mr.getFilePath().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                byte[] text = mr.getText().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                position += 4 + 1 + 1 + 8 + 4 + path.length + 4;
+                offsets[i] = position;
+                lengths[i] = text.length;
+                out.write(text);
+                position += text.length;
+            }
+        }
+        if (textCache != null) {
+            // The cache moves the file, so no miss falls between move and relocation
+            textCache.relocate(temp, reviews, offsets, lengths);
+        } else {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reads all reviews from a segment file.
+     * @param segmentPath Path of the segment file.
+     * @return The reviews, in file order.
+     * @throws IOException if the file cannot be read or is not a segment.
+     */
+    public static List<MovieReview> read(String segmentPath) throws IOException {
+        return read(segmentPath, null);
+    }
+
+    /**
+     * Reads all reviews from a segment file. With a text cache the review
+     * text is skipped and only its location is kept; the cache fetches it on
+     * demand.
+     * @param segmentPath Path of the segment file.
+     * @param textCache The store for the text, or null to load the text.
+     * @return The reviews, in file order.
+     * @throws IOException if the file cannot be read or is not a segment.
+     */
+    public static List<MovieReview> read(String segmentPath, ReviewTextCache textCache)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(segmentPath), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + segmentPath + " is not a review database");
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("File " + segmentPath + " has unsupported version " + version);
+            }
+            boolean hashed = version >= 2;
+            int count = in.readInt();
+            long position = HEADER_SIZE;
+            List<MovieReview> reviews = new ArrayList<>(count);
+            byte[] scratch = new byte[BUFFER_SIZE];
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                ReviewScore realScore = scoreFromCode(in.readByte());
+                ReviewScore predictedScore = scoreFromCode(in.readByte());
+                long contentHash = hashed ? in.readLong() : 0;
+                String filePath = readString(in, scratch);
+                position += 4 + 1 + 1 + (hashed ? 8 : 0) + 4 + filePath.getBytes(StandardCharsets.UTF_8).length;
+                if (textCache == null) {
+                    String text = readString(in, scratch);
+                    reviews.add(new MovieReview(id, filePath, text, realScore, predictedScore));
+                } else {
+                    int length = readLength(in);
+                    position += 4;
+                    skipFully(in, length);
+                    MovieReview review = new MovieReview(id, filePath, textCache, position, length,
+                            realScore, predictedScore);
+                    if (hashed) {
+                        review.setContentHash(contentHash);
+                    }
+                    reviews.add(review);
+                    position += length;
+                }
+            }
+            return reviews;
+        }
+    }
+
+    /**
+     * Streams the text of every review of a segment file in file order,
+     * one review at a time, e.g. to rebuild the indexes in lazy text mode
+     * without holding all the text or reading it review by review.
+     * @param segmentPath Path of the segment file.
+     * @param visitor Receives the text and the id of each review.
+     * @throws IOException if the file cannot be read or is not a segment.
+     */
+    public static void forEachText(String segmentPath, ObjIntConsumer<String> visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(segmentPath), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + segmentPath + " is not a review database");
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("File " + segmentPath + " has unsupported version " + version);
+            }
+            int count = in.readInt();
+            byte[] scratch = new byte[BUFFER_SIZE];
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                // Scores, fingerprint and path
+                skipFully(in, version >= 2 ? 10 : 2);
+                skipFully(in, readLength(in));
+                visitor.accept(readString(in, scratch), id);
+            }
+        }
+    }
+
+    /**
+     * Reads a legacy text database (lines of "id @ path @ real @ predicted").
+     * The review text is read from each review file.
+     * @param textDbPath Path of the legacy database.txt.
+     * @return The reviews, in file order.
+     * @throws IOException if the database or a review file cannot be read.
+     */
+    public static List<MovieReview> readLegacy(String textDbPath) throws IOException {
+        List<MovieReview> reviews = new ArrayList<>();
+        try (Scanner inFile = new Scanner(new FileReader(textDbPath))) {
+            while (inFile.hasNextLine()) {
+                String line = inFile.nextLine();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] lineParts = line.split(" @ ");
+                int id = Integer.parseInt(lineParts[0]);
+                String filePath = lineParts[1];
+                String text = ReviewReader.readText(filePath);
+                ReviewScore realScore = ReviewScore.fromString(lineParts[2]);
+                ReviewScore predictedScore = ReviewScore.fromString(lineParts[3]);
+                reviews.add(new MovieReview(id, filePath, text, realScore, predictedScore));
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * Reads a legacy text database in parallel. The file is memory-mapped
+     * and split into chunks on line boundaries; a fork/join pool parses the
+     * chunks and reads their review files, and the partial lists are joined
+     * in file order. Gives the same result as readLegacy.
+     * @param textDbPath Path of the legacy database.txt.
+     * @param pool The pool running the chunks.
+     * @return The reviews, in file order.
+     * @throws IOException if the database or a review file cannot be read.
+     */
+    public static List<MovieReview> readLegacyParallel(String textDbPath, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(textDbPath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                // Too large to map in one piece
+                return readLegacy(textDbPath);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return pool.invoke(new LegacyChunk(mapped, 0, mapped.limit()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses the lines of a byte range of a legacy database, splitting
+     * ranges larger than CHUNK_SIZE in two at a line boundary.
+     */
+    @SuppressWarnings("serial")
+    private static final class LegacyChunk extends RecursiveTask<List<MovieReview>> {
+
+        LegacyChunk(ByteBuffer file, int start, int end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<MovieReview> compute() {
+            if (end - start > CHUNK_SIZE) {
+                int middle = start + (end - start) / 2;
+                while (middle < end && file.get(middle) != '\n') {
+                    middle++;
+                }
+                if (middle < end) {
+                    LegacyChunk left = new LegacyChunk(file, start, middle + 1);
+                    LegacyChunk right = new LegacyChunk(file, middle + 1, end);
+                    right.fork();
+                    List<MovieReview> reviews = left.compute();
+                    reviews.addAll(right.join());
+                    return reviews;
+                }
+            }
+            return parse();
+        }
+
+        private List<MovieReview> parse() {
+            // Each task reads through its own view of the shared mapping
+            ByteBuffer view = file.duplicate();
+            byte[] bytes = new byte[end - start];
+            view.position(start);
+            view.get(bytes);
+            String chunk = new String(bytes, Charset.defaultCharset());
+            List<MovieReview> reviews = new ArrayList<>();
+            int lineStart = 0;
+            while (lineStart < chunk.length()) {
+                int lineEnd = chunk.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = chunk.length();
+                }
+                String line = chunk.substring(lineStart, lineEnd);
+                if (line.endsWith("\r")) {
+                    line = line.substring(0, line.length() - 1);
+                }
+                lineStart = lineEnd + 1;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] lineParts = line.split(" @ ");
+                int id = Integer.parseInt(lineParts[0]);
+                String filePath = lineParts[1];
+                String text;
+                try {
+                    text = ReviewReader.readText(filePath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ReviewScore realScore = ReviewScore.fromString(lineParts[2]);
+                ReviewScore predictedScore = ReviewScore.fromString(lineParts[3]);
+                reviews.add(new MovieReview(id, filePath, text, realScore, predictedScore));
+            }
+            return reviews;
+        }
+
+        private final ByteBuffer file;
+        private final int start;
+        private final int end;
+    }
+
+    /**
+     * Converts a legacy text database into a segment file.
+     * @param textDbPath Path of the legacy database.txt.
+     * @param segmentPath Path of the segment file to write.
+     * @return The number of reviews converted.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static int convert(String textDbPath, String segmentPath) throws IOException {
+        List<MovieReview> reviews = readLegacy(textDbPath);
+        write(segmentPath, reviews);
+        return reviews.size();
+    }
+
+    /**
+     * Command line converter: ReviewSegment &lt;database.txt&gt; &lt;database.bin&gt;
+     * @param args The legacy and the segment file paths.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Please provide command line arguments: <textDbPath> and <segmentPath>");
+            return;
+        }
+        try {
+            int count = convert(args[0], args[1]);
+            System.out.println("Converted " + count + " reviews.");
+        } catch (IOException ex) {
+            System.err.println("Conversion failed: " + ex);
+        }
+    }
+
+    private static String readString(DataInputStream in, byte[] scratch) throws IOException {
+        int length = readLength(in);
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt review database: negative length " + length);
+        }
+        return length;
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of review database");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static int scoreCode(ReviewScore score) {
+        return (score == null ? ReviewScore.UNKNOWN : score).toInteger();
+    }
+
+    private static ReviewScore scoreFromCode(byte b) throws IOException {
+        ReviewScore score = ReviewScore.fromInteger(b);
+        if (score == null) {
+            throw new IOException("Corrupt review database: unknown score " + b);
+        }
+        return score;
+    }
+
+    /**
+     * "MRDB" in ASCII.
+     */
+    private static final int MAGIC = 0x4D524442;
+
+    /**
+     * Current format version, bumped on every layout change.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Size of magic, version and record count.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Largest part of a legacy database parsed by one fork/join task.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+}
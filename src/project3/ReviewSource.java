@@ -0,0 +1,174 @@
+package project3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A stream of review entries to load: the .txt files of a directory tree, or
+ * the .txt entries of a zip or tar.gz archive. Archive entries are read as
+ * the archive is decompressed, without extracting anything to disk.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface ReviewSource extends Closeable {
+
+    /**
+     * Returns the next review entry.
+     * @return The next entry, or null when the source is exhausted.
+     * @throws IOException if the source cannot be read.
+     */
+    Entry next() throws IOException;
+
+    /**
+     * One review to load. Entries of a directory only carry their path and
+     * are read later; archive entries carry their raw bytes.
+     */
+    final class Entry {
+
+        /**
+         * Constructor.
+         * @param path Path of the review, "archive!/entry" for archive entries.
+         * @param content Raw UTF-8 bytes of the review, or null to read the
+         * file at path.
+         */
+        public Entry(String path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+
+        /**
+         * Getter method for the path of the review.
+         * @return path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Getter method for the raw bytes of the review.
+         * @return content, or null if the review must be read from path
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        private final String path;
+        private final byte[] content;
+    }
+
+    /**
+     * Separator between the archive path and the entry name in the path of
+     * an archive entry, as in "reviews.zip!/neg/0_3.txt".
+     */
+    String ARCHIVE_SEPARATOR = "!/";
+
+    /**
+     * Opens a directory tree, a zip archive (.zip) or a gzipped tar archive
+     * (.tar.gz, .tgz).
+     * @param path The directory or archive.
+     * @return The source, or null if path is none of these.
+     * @throws IOException if the directory or archive cannot be opened.
+     */
+    static ReviewSource open(Path path) throws IOException {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase();
+        if (Files.isDirectory(path)) {
+            return new DirectoryReviewSource(path);
+        } else if (name.endsWith(".zip")) {
+            return new ZipReviewSource(path);
+        } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return new TarGzReviewSource(path);
+        }
+        return null;
+    }
+
+    /**
+     * Counts the review entries of a directory tree or zip archive without
+     * reading them, e.g. to show how far a load has got. A gzipped tar
+     * archive would have to be decompressed to be counted, so it is not.
+     * @param path The directory or archive.
+     * @param stop Polled between entries; the count gives up once it
+     * returns true, e.g. when the load is cancelled.
+     * @return The number of .txt entries, or -1 if unknown or given up.
+     * @throws IOException if the directory or archive cannot be listed.
+     */
+    static long countEntries(Path path, BooleanSupplier stop) throws IOException {
+        long count = -1;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                count = files.takeWhile(p -> !stop.getAsBoolean())
+                        .filter(p -> p.toString().endsWith(".txt") && Files.isRegularFile(p)).count();
+            }
+        } else if (path.toString().toLowerCase().endsWith(".zip")) {
+            // The central directory lists every entry
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                count = zip.stream().takeWhile(e -> !stop.getAsBoolean())
+                        .filter(e -> !e.isDirectory() && e.getName().endsWith(".txt")).count();
+            }
+        }
+        return stop.getAsBoolean() ? -1 : count;
+    }
+
+    /**
+     * Whether a file name is one of the supported archive types.
+     * @param fileName The file name.
+     * @return true for .zip, .tar.gz and .tgz.
+     */
+    static boolean isArchive(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".zip") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    /**
+     * Whether a review path names an entry inside an archive.
+     * @param reviewPath The path of a review.
+     * @return true for paths such as "reviews.zip!/neg/0_3.txt".
+     */
+    static boolean isArchiveEntry(String reviewPath) {
+        int separator = reviewPath.indexOf(ARCHIVE_SEPARATOR);
+        return separator > 0 && isArchive(reviewPath.substring(0, separator));
+    }
+
+    /**
+     * Reads a single entry back from an archive, e.g. to fetch the text of a
+     * review loaded from it.
+     * @param archivePath Path of the archive.
+     * @param entryName Name of the entry inside the archive.
+     * @return The raw bytes of the entry.
+     * @throws IOException if the archive or the entry cannot be read.
+     */
+    static byte[] readArchiveEntry(String archivePath, String entryName) throws IOException {
+        if (archivePath.toLowerCase().endsWith(".zip")) {
+            // Zip files have a central directory, no need to scan
+            try (ZipFile zip = new ZipFile(archivePath)) {
+                ZipEntry entry = zip.getEntry(entryName);
+                if (entry == null) {
+                    throw new IOException("No entry " + entryName + " in " + archivePath);
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    return in.readAllBytes();
+                }
+            }
+        }
+        String wanted = archivePath + ARCHIVE_SEPARATOR + entryName;
+        try (ReviewSource source = open(Paths.get(archivePath))) {
+            if (source == null) {
+                throw new IOException(archivePath + " is not an archive");
+            }
+            for (Entry entry = source.next(); entry != null; entry = source.next()) {
+                if (entry.getPath().equals(wanted)) {
+                    return entry.getContent();
+                }
+            }
+        }
+        throw new IOException("No entry " + entryName + " in " + archivePath);
+    }
+}
@@ -0,0 +1,76 @@
+package project3;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The review database: reviews keyed by their int id. Implementations are
+ * safe for concurrent use, so ingestion threads can insert while other
+ * threads look up or iterate the reviews.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface ReviewStore {
+
+    /**
+     * Adds a review, replacing any review with the same id.
+     * @param id The id of the review.
+     * @param review The review.
+     * @return The replaced review, or null.
+     */
+    MovieReview put(int id, MovieReview review);
+
+    /**
+     * Looks up a review.
+     * @param id The id of the review.
+     * @return The review, or null if there is none with this id.
+     */
+    MovieReview get(int id);
+
+    /**
+     * Whether a review with the given id is stored.
+     * @param id The id of the review.
+     * @return true if the review exists.
+     */
+    boolean containsKey(int id);
+
+    /**
+     * Removes a review.
+     * @param id The id of the review.
+     * @return The removed review, or null if there was none.
+     */
+    MovieReview remove(int id);
+
+    /**
+     * Getter method for the number of reviews.
+     * @return size
+     */
+    int size();
+
+    /**
+     * Getter method for the largest id in the store.
+     * @return The largest id, or 0 if the store is empty.
+     */
+    int maxId();
+
+    /**
+     * Returns the ids of all reviews. Reviews inserted or removed during the
+     * call may or may not be included.
+     * @return A fresh array of ids, in no particular order.
+     */
+    int[] ids();
+
+    /**
+     * Returns all reviews, with the same guarantees as ids().
+     * @return A fresh list of reviews, in no particular order.
+     */
+    List<MovieReview> values();
+
+    /**
+     * Hands every review to an action, with the same guarantees as ids().
+     * The action must not modify the store.
+     * @param action The action.
+     */
+    void forEach(Consumer<MovieReview> action);
+}
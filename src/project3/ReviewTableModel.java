@@ -0,0 +1,155 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model over reviews that copies nothing: a row is only a key, and the
+ * review behind it is looked up when the table paints or sorts that row.
+ * The text column shows the first characters of the text only. Opening a
+ * view of the whole database costs one int per review, whatever its size.
+ * <p>
+ * A view of the database holds a snapshot of the ids; reviews deleted since
+ * show as empty rows.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+@SuppressWarnings("serial")
+public class ReviewTableModel extends AbstractTableModel {
+
+    /**
+     * A view of every review in the database, by ascending id.
+     * @param store The database.
+     * @return The model.
+     */
+    public static ReviewTableModel of(ReviewStore store) {
+        int[] ids = store.ids();
+        sortIds(ids);
+        return new ReviewTableModel(ids, store::get, true);
+    }
+
+    /**
+     * Sorts distinct ids. Ids are handed out in sequence, so they are
+     * mostly dense: marking them in a bit set and reading it back takes
+     * linear time, where a comparison sort of a million ids takes a visible
+     * pause.
+     */
+    private static void sortIds(int[] ids) {
+        int min = 0;
+        int max = 0;
+        for (int id : ids) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        if (min < 0 || max / 4 > ids.length) {
+            Arrays.sort(ids);
+            return;
+        }
+        BitSet present = new BitSet(max + 1);
+        for (int id : ids) {
+            present.set(id);
+        }
+        int i = 0;
+        for (int id = present.nextSetBit(0); id >= 0; id = present.nextSetBit(id + 1)) {
+            ids[i++] = id;
+        }
+    }
+
+    /**
+     * A view of a list of reviews, e.g. search results, in list order.
+     * @param reviews The reviews.
+     * @return The model.
+     */
+    public static ReviewTableModel of(List<MovieReview> reviews) {
+        int[] positions = new int[reviews.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        return new ReviewTableModel(positions, reviews::get, false);
+    }
+
+    private ReviewTableModel(int[] keys, IntFunction<MovieReview> lookup, boolean keysAreIds) {
+        this.keys = keys;
+        this.lookup = lookup;
+        this.keysAreIds = keysAreIds;
+    }
+
+    /**
+     * Returns the review shown in a row.
+     * @param row The row, in model order.
+     * @return The review, or null if it was deleted since.
+     */
+    public MovieReview getReview(int row) {
+        return lookup.apply(keys[row]);
+    }
+
+    @Override
+    public int getRowCount() {
+        return keys.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == ID_COLUMN ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == ID_COLUMN && keysAreIds) {
+            // Sorting by id needs no lookup
+            return keys[row];
+        }
+        MovieReview review = getReview(row);
+        if (review == null) {
+            return column == ID_COLUMN ? null : "";
+        }
+        switch (column) {
+            case ID_COLUMN:
+                return review.getId();
+            case TEXT_COLUMN:
+                return preview(review.getText());
+            case PREDICTED_COLUMN:
+                return String.valueOf(review.getPredictedScore());
+            default:
+                return String.valueOf(review.getRealScore());
+        }
+    }
+
+    private static String preview(String text) {
+        return text.length() <= PREVIEW_CHARS ? text : text.substring(0, PREVIEW_CHARS) + "...";
+    }
+
+    /**
+     * The columns, and the preferred width of each in pixels.
+     */
+    static final String[] COLUMN_NAMES = {"ID", "Text", "Predicted", "Real"};
+    static final int[] COLUMN_WIDTHS = {70, 480, 90, 90};
+
+    static final int ID_COLUMN = 0;
+    static final int TEXT_COLUMN = 1;
+    static final int PREDICTED_COLUMN = 2;
+    static final int REAL_COLUMN = 3;
+
+    /**
+     * Characters of review text shown in the text column.
+     */
+    static final int PREVIEW_CHARS = 50;
+
+    private final int[] keys;
+    private final IntFunction<MovieReview> lookup;
+    private final boolean keysAreIds;
+}
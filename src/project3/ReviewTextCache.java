@@ -0,0 +1,260 @@
+package project3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Size-bounded LRU cache of review text for lazily loaded reviews. Text is
+ * read from the database segment (or from the original review file when the
+ * review has not been saved yet) on a miss, and the least recently used
+ * entries are evicted once the cached text exceeds the character budget.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ReviewTextCache implements TextStore {
+
+    /**
+     * Constructor.
+     * @param segmentPath Path of the database segment holding the text.
+     * @param maxChars Maximum number of characters kept in the cache.
+     */
+    public ReviewTextCache(String segmentPath, long maxChars) {
+        this.segmentPath = segmentPath;
+        this.maxChars = maxChars;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    /**
+     * Returns the text of a review, reading it on a cache miss. The read
+     * happens outside the cache lock, so a miss does not hold up lookups of
+     * other reviews; a read that overlaps a relocation is done again.
+     * @param review The review.
+     * @return The review text.
+     */
+    @Override
+    public String loadText(MovieReview review) {
+        boolean counted = false;
+        while (true) {
+            long offset;
+            int length;
+            FileChannel from;
+            long seen;
+            synchronized (this) {
+                String text = entries.get(review);
+                if (text != null) {
+                    if (!counted) {
+                        hits++;
+                    }
+                    return text;
+                }
+                if (!counted) {
+                    misses++;
+                    counted = true;
+                }
+                offset = review.getTextOffset();
+                length = review.getTextLength();
+                from = offset < 0 ? null : openChannel();
+                seen = relocations;
+            }
+
+            String text;
+            try {
+                text = from == null ? ReviewReader.readText(review.getFilePath()) : read(from, offset, length);
+            } catch (ClosedByInterruptException ex) {
+                // This thread was interrupted; its read closed the channel
+                forgetChannel(from);
+                throw new UncheckedIOException("Cannot read text of review " + review.getId(), ex);
+            } catch (ClosedChannelException ex) {
+                // Closed by a relocation, or by another thread's interrupt
+                forgetChannel(from);
+                continue;
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read text of review " + review.getId(), ex);
+            }
+
+            synchronized (this) {
+                if (relocations != seen) {
+                    // The review may point into the new segment by now
+                    continue;
+                }
+                String previous = entries.put(review, text);
+                if (previous != null) {
+                    // Another thread read it meanwhile
+                    cachedChars -= previous.length();
+                }
+                cachedChars += text.length();
+                evict();
+                return text;
+            }
+        }
+    }
+
+    /**
+     * Moves a newly written segment over the old one and points reviews at
+     * their text in it, dropping any resident text. Both happen under the
+     * cache lock, so no miss reads the new file with an old offset, and the
+     * old file is closed before it is replaced, which Windows requires.
+     * @param written The newly written segment.
+     * @param reviews The reviews written, in segment order.
+     * @param offsets The offset of each review's text in the new segment.
+     * @param lengths The length in bytes of each review's text.
+     * @throws IOException if the segment cannot be moved; the reviews then
+     * keep reading the old one.
+     */
+    public synchronized void relocate(Path written, List<MovieReview> reviews, long[] offsets, int[] lengths)
+            throws IOException {
+        closeChannel();
+        relocations++;
+        Files.move(written, Paths.get(segmentPath), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 0; i < reviews.size(); i++) {
+            reviews.get(i).relocateText(this, offsets[i], lengths[i]);
+        }
+    }
+
+    /**
+     * Drops a review's text from the cache, e.g. after it was deleted.
+     * @param review The review.
+     */
+    public synchronized void invalidate(MovieReview review) {
+        String text = entries.remove(review);
+        if (text != null) {
+            cachedChars -= text.length();
+        }
+    }
+
+    /**
+     * Getter method for the number of lookups served from the cache.
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Getter method for the number of lookups that had to read the text.
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Getter method for the number of entries evicted to stay in budget.
+     * @return evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Getter method for the number of characters currently cached.
+     * @return cachedChars
+     */
+    public synchronized long getCachedChars() {
+        return cachedChars;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Text cache: " + entries.size() + " entries, " + cachedChars + " chars, "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * Reads text from the segment. Positional reads do not share a file
+     * position, so any number of threads may read at once.
+     */
+    private String read(FileChannel from, long offset, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (from.read(bytes, offset + bytes.position()) < 0) {
+                throw new IOException("Unexpected end of " + segmentPath);
+            }
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens the segment unless it is open. Called with the lock held.
+     */
+    private FileChannel openChannel() {
+        if (channel == null) {
+            try {
+                channel = FileChannel.open(Paths.get(segmentPath), StandardOpenOption.READ);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot open " + segmentPath, ex);
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Drops a channel that was found closed, so the next miss reopens the
+     * segment.
+     */
+    private synchronized void forgetChannel(FileChannel closed) {
+        if (channel == closed) {
+            channel = null;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<MovieReview, String>> it = entries.entrySet().iterator();
+        // Always keep the most recent entry, even if it alone exceeds the budget
+        while (cachedChars > maxChars && entries.size() > 1 && it.hasNext()) {
+            cachedChars -= it.next().getValue().length();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.warning("Cannot close " + segmentPath + ": " + ex);
+            }
+            channel = null;
+        }
+    }
+
+    private final String segmentPath;
+    private final long maxChars;
+
+    /**
+     * Cached text in access order, least recently used first.
+     */
+    private final LinkedHashMap<MovieReview, String> entries;
+
+    private FileChannel channel;
+
+    /**
+     * Number of relocations so far, to tell whether a review may have moved
+     * while its text was read.
+     */
+    private long relocations;
+    private long cachedChars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+}
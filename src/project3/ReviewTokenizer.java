@@ -0,0 +1,188 @@
+package project3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass tokenizer used for classification. It walks the review text
+ * once, lowercasing into a reusable buffer and cutting tokens on whitespace
+ * and punctuation, so no intermediate Strings or token arrays are created.
+ * It produces the same tokens as removing "&lt;br /&gt;", replacing
+ * \p{Punct} with spaces, lowercasing and splitting on \s+.
+ * <p>
+ * A tokenizer keeps per-call state and is not thread safe; use
+ * {@link #forCurrentThread()} to get one.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class ReviewTokenizer {
+
+    /**
+     * Receives each token as a range of the tokenizer's buffer. The buffer is
+     * reused for the next token, so it must not be kept.
+     */
+    public interface TokenVisitor {
+        /**
+         * Called once per token.
+         * @param token Lowercased characters of the token.
+         * @param length Number of valid characters in token.
+         */
+        void visit(char[] token, int length);
+    }
+
+    /**
+     * Creates a tokenizer with its own buffer.
+     */
+    public ReviewTokenizer() {
+        buffer = new char[64];
+    }
+
+    /**
+     * Returns the tokenizer owned by the calling thread.
+     * @return A tokenizer that only the current thread uses.
+     */
+    public static ReviewTokenizer forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * Splits the text into lowercased tokens and passes them to the visitor.
+     * @param text The review text.
+     * @param visitor Called once for every token, in order.
+     * @return The number of tokens visited.
+     */
+    public int tokenize(String text, TokenVisitor visitor) {
+        int tokens = 0;
+        int length = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '<' && text.startsWith(BREAK_TAG, i)) {
+                // "<br />" is a plain separator, its letters are not a token
+                i += BREAK_TAG.length() - 1;
+                c = ' ';
+            }
+            if (isSeparator(c)) {
+                if (length > 0) {
+                    visitor.visit(buffer, length);
+                    tokens++;
+                    length = 0;
+                }
+            } else {
+                if (length == buffer.length) {
+                    char[] grown = new char[length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                }
+                buffer[length++] = Character.toLowerCase(c);
+            }
+        }
+        if (length > 0) {
+            visitor.visit(buffer, length);
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits UTF-8 encoded text into lowercased tokens, producing the same
+     * tokens as decoding it and calling tokenize(String, TokenVisitor).
+     * Separators are all ASCII and never occur inside a multi-byte
+     * character, so tokens are cut on bytes; only tokens with non-ASCII
+     * characters are decoded.
+     * @param utf8 The bytes holding the text.
+     * @param offset Index of the first byte of the text.
+     * @param length Number of bytes of the text.
+     * @param visitor Called once for every token, in order.
+     * @return The number of tokens visited.
+     */
+    public int tokenize(byte[] utf8, int offset, int length, TokenVisitor visitor) {
+        int tokens = 0;
+        int start = -1;
+        boolean ascii = true;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            byte b = i < end ? utf8[i] : (byte) ' ';
+            if (b < 0 || !SEPARATORS[b]) {
+                if (start < 0) {
+                    start = i;
+                    ascii = true;
+                }
+                ascii &= b >= 0;
+                continue;
+            }
+            if (start >= 0) {
+                visitToken(utf8, start, i - start, ascii, visitor);
+                tokens++;
+                start = -1;
+            }
+            if (b == '<' && startsWithBreakTag(utf8, i, end)) {
+                // "<br />" is a plain separator, its letters are not a token
+                i += BREAK_TAG.length() - 1;
+            }
+        }
+        return tokens;
+    }
+
+    private void visitToken(byte[] utf8, int start, int length, boolean ascii, TokenVisitor visitor) {
+        if (ascii) {
+            if (length > buffer.length) {
+                buffer = new char[Math.max(length, buffer.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                buffer[i] = Character.toLowerCase((char) utf8[start + i]);
+            }
+            visitor.visit(buffer, length);
+        } else {
+            String token = new String(utf8, start, length, StandardCharsets.UTF_8);
+            int n = token.length();
+            if (n > buffer.length) {
+                buffer = new char[Math.max(n, buffer.length * 2)];
+            }
+            for (int i = 0; i < n; i++) {
+                buffer[i] = Character.toLowerCase(token.charAt(i));
+            }
+            visitor.visit(buffer, n);
+        }
+    }
+
+    private static boolean startsWithBreakTag(byte[] utf8, int i, int end) {
+        if (end - i < BREAK_TAG.length()) {
+            return false;
+        }
+        for (int j = 0; j < BREAK_TAG.length(); j++) {
+            if (utf8[i + j] != BREAK_TAG.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a character ends a token: ASCII whitespace (\s) or ASCII
+     * punctuation (\p{Punct}).
+     * @param c The character.
+     * @return true if c separates tokens.
+     */
+    public static boolean isSeparator(char c) {
+        return c < 128 && SEPARATORS[c];
+    }
+
+    private char[] buffer;
+
+    private static final String BREAK_TAG = "<br />";
+
+    private static final boolean[] SEPARATORS = new boolean[128];
+
+    static {
+        for (char c : " \t\n\u000B\f\r".toCharArray()) {
+            SEPARATORS[c] = true;
+        }
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            SEPARATORS[c] = true;
+        }
+    }
+
+    private static final ThreadLocal<ReviewTokenizer> PER_THREAD =
+            ThreadLocal.withInitial(ReviewTokenizer::new);
+}
@@ -0,0 +1,228 @@
+package project3;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Call counts and latency histograms of the processing stages: reading,
+ * tokenizing and classifying reviews, inserting them, searching, and saving
+ * and loading the database.
+ * <p>
+ * Recording costs two clock reads and a few uncontended atomic updates.
+ * Each stage keeps several histograms, and a thread records into the one
+ * picked by its id, so the threads of a pool do not contend for the same
+ * counters. Once a second the histograms of a stage are merged into the
+ * snapshot the getters read. A stripe per thread, rather than a histogram
+ * per thread, keeps the memory fixed when threads come and go, e.g. one per
+ * file.
+ * <p>
+ * registerMBeans publishes the metrics over JMX as
+ * project3:type=StageMetrics,name=&lt;stage&gt;.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public final class StageMetrics implements StageMetricsMXBean {
+
+    /**
+     * The instrumented stages.
+     */
+    public enum Stage {
+        READ("read"),
+        TOKENIZE("tokenize"),
+        CLASSIFY("classify"),
+        INSERT("insert"),
+        SEARCH("search"),
+        SAVE("save"),
+        LOAD("load");
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        private final String label;
+    }
+
+    private StageMetrics(Stage stage) {
+        this.stage = stage;
+        this.stripes = newStripes();
+    }
+
+    /**
+     * Records one call of a stage. Safe to call from any thread.
+     * @param stage The stage.
+     * @param startNanos System.nanoTime() when the call started.
+     */
+    public static void record(Stage stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        LatencyHistogram[] stripes = STAGES[stage.ordinal()].stripes;
+        stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)].record(nanos);
+    }
+
+    /**
+     * Returns the metrics of a stage.
+     * @param stage The stage.
+     * @return The metrics.
+     */
+    public static StageMetrics get(Stage stage) {
+        return STAGES[stage.ordinal()];
+    }
+
+    /**
+     * Registers the metrics of every stage with the platform MBean server
+     * and starts merging them once a second. Calling it again does nothing.
+     */
+    public static synchronized void registerMBeans() {
+        if (merger != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (StageMetrics metrics : STAGES) {
+            try {
+                ObjectName name = new ObjectName("project3:type=StageMetrics,name=" + metrics.stage);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(metrics, name);
+                }
+            } catch (JMException e) {
+                log.warning("Cannot register the " + metrics.stage + " metrics: " + e);
+            }
+        }
+        merger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stage-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        merger.scheduleAtFixedRate(StageMetrics::mergeAll, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Merges the stripes of every stage into their snapshots now, e.g.
+     * before printing them without the MBeans registered.
+     */
+    public static void mergeAll() {
+        for (StageMetrics metrics : STAGES) {
+            metrics.merge();
+        }
+    }
+
+    /**
+     * Merges the stripes into a new snapshot and updates the rate.
+     */
+    private synchronized void merge() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram stripe : stripes) {
+            merged.add(stripe);
+        }
+        long now = System.nanoTime();
+        long previous = snapshot.getCount();
+        if (mergedNanos != 0 && now > mergedNanos) {
+            rate = Math.max(0, merged.getCount() - previous) * 1e9 / (now - mergedNanos);
+        }
+        mergedNanos = now;
+        snapshot = merged;
+    }
+
+    /**
+     * Getter method for the merged latencies, as of the last merge.
+     * @return The histogram; do not record into it.
+     */
+    public LatencyHistogram getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public String getStage() {
+        return stage.toString();
+    }
+
+    @Override
+    public long getCount() {
+        return snapshot.getCount();
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        return rate;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return snapshot.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return snapshot.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return snapshot.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return snapshot.getPercentile(99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return snapshot.getMax() / 1e3;
+    }
+
+    /**
+     * Starts counting afresh. Calls recorded while resetting may be lost.
+     */
+    @Override
+    public synchronized void reset() {
+        stripes = newStripes();
+        snapshot = new LatencyHistogram();
+        mergedNanos = 0;
+        rate = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-9s %s", stage, snapshot);
+    }
+
+    /**
+     * One stripe per core, rounded up to a power of two, at most 16.
+     */
+    private static LatencyHistogram[] newStripes() {
+        int cores = Math.min(16, Runtime.getRuntime().availableProcessors());
+        LatencyHistogram[] stripes = new LatencyHistogram[Integer.highestOneBit(cores * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new LatencyHistogram();
+        }
+        return stripes;
+    }
+
+    private static final StageMetrics[] STAGES = new StageMetrics[Stage.values().length];
+    static {
+        for (Stage stage : Stage.values()) {
+            STAGES[stage.ordinal()] = new StageMetrics(stage);
+        }
+    }
+
+    private static ScheduledExecutorService merger;
+
+    private static final Logger log = Logger.getLogger("SentimentAnalysis");
+
+    private final Stage stage;
+    private volatile LatencyHistogram[] stripes;
+    private volatile LatencyHistogram snapshot = new LatencyHistogram();
+    private volatile long mergedNanos;
+    private volatile double rate;
+}
@@ -0,0 +1,66 @@
+package project3;
+
+/**
+ * Management interface of the metrics of one processing stage, as shown in
+ * JConsole or VisualVM under project3/StageMetrics. Figures are updated
+ * once a second; latencies are in microseconds and cover everything
+ * recorded since the start or the last reset.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface StageMetricsMXBean {
+
+    /**
+     * Getter method for the name of the stage.
+     * @return e.g. classify
+     */
+    String getStage();
+
+    /**
+     * Getter method for the number of recorded calls.
+     * @return count
+     */
+    long getCount();
+
+    /**
+     * Calls per second over the last second.
+     * @return rate
+     */
+    double getRatePerSecond();
+
+    /**
+     * Getter method for the mean latency.
+     * @return mean in microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * Getter method for the median latency.
+     * @return p50 in microseconds
+     */
+    double getP50Micros();
+
+    /**
+     * Getter method for the 99th percentile latency.
+     * @return p99 in microseconds
+     */
+    double getP99Micros();
+
+    /**
+     * Getter method for the 99.9th percentile latency.
+     * @return p999 in microseconds
+     */
+    double getP999Micros();
+
+    /**
+     * Getter method for the largest latency.
+     * @return max in microseconds
+     */
+    double getMaxMicros();
+
+    /**
+     * Starts counting afresh.
+     */
+    void reset();
+}
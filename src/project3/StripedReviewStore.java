@@ -0,0 +1,173 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Review store split into independently locked stripes, each an
+ * IntReviewMap. Each id belongs to one stripe, so threads inserting different reviews rarely wait for each
+ * other, and readers of one stripe never block writers of another.
+ * Iteration visits one stripe at a time under its read lock, so it never
+ * sees a stripe half-updated but may miss changes made to stripes it has
+ * already visited.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class StripedReviewStore implements ReviewStore {
+
+    /**
+     * Constructor, with four stripes per processor.
+     */
+    public StripedReviewStore() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     * @param stripeCount Minimum number of stripes, rounded up to a power of two.
+     */
+    public StripedReviewStore(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be positive");
+        }
+        int count = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = count - 1;
+    }
+
+    @Override
+    public MovieReview put(int id, MovieReview review) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.writeLock().lock();
+        try {
+            return stripe.reviews.put(id, review);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MovieReview get(int id) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.reviews.get(id);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public MovieReview remove(int id) {
+        Stripe stripe = stripeFor(id);
+        stripe.lock.writeLock().lock();
+        try {
+            return stripe.reviews.remove(id);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                size += stripe.reviews.size();
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int maxId() {
+        int max = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                max = Math.max(max, stripe.reviews.maxId());
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public int[] ids() {
+        int[] ids = new int[16];
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                if (size + stripe.reviews.size() > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(2 * ids.length, size + stripe.reviews.size()));
+                }
+                size = stripe.reviews.copyIds(ids, size);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    @Override
+    public List<MovieReview> values() {
+        List<MovieReview> values = new ArrayList<>();
+        forEach(values::add);
+        return values;
+    }
+
+    @Override
+    public void forEach(Consumer<MovieReview> action) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                stripe.reviews.forEach(action);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Getter method for the number of stripes.
+     * @return The number of stripes, a power of two.
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    private Stripe stripeFor(int id) {
+        // Spread the bits so that ids with a common stride still use all stripes
+        int h = id * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * One lock and the reviews it guards.
+     */
+    private static final class Stripe {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final IntReviewMap reviews = new IntReviewMap();
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+}
@@ -0,0 +1,249 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The .txt entries of a gzipped tar archive, in archive order, read while
+ * the archive is being decompressed. Understands ustar headers, including
+ * the name prefix field, GNU long names, the path and size records of PAX
+ * extended headers, and sizes in base-256 as GNU and star write them for
+ * entries of 8 GB and more.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class TarGzReviewSource implements ReviewSource {
+
+    /**
+     * Constructor.
+     * @param archive The .tar.gz archive.
+     * @throws IOException if the archive cannot be opened.
+     */
+    public TarGzReviewSource(Path archive) throws IOException {
+        this.archivePath = archive.toString();
+        this.in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(archive.toFile()), 64 * 1024), 64 * 1024));
+    }
+
+    /**
+     * Returns the next .txt entry of the archive.
+     * @return The entry with its bytes, or null after the last one.
+     * @throws IOException if the archive cannot be read or is not a tar.
+     */
+    @Override
+    public Entry next() throws IOException {
+        String longName = null;
+        long paxSize = -1;
+        while (true) {
+            if (!readBlock()) {
+                return null;
+            }
+            if (isZeroBlock()) {
+                // End of archive marker
+                return null;
+            }
+            long size = parseNumber(124, 12);
+            char type = (char) header[156];
+            if (type == 'L') {
+                // GNU long name: the name of the next entry is the content
+                byte[] name = readContent(size);
+                longName = cString(name, 0, name.length);
+                continue;
+            }
+            if (type == 'x' || type == 'g') {
+                // PAX extended header: records for the next entry, or all of them
+                Map<String, String> records = parsePax(readContent(size));
+                if (type == 'g') {
+                    if (records.containsKey("path") || records.containsKey("size")) {
+                        throw new IOException("Global PAX path or size not supported in " + archivePath);
+                    }
+                    continue;
+                }
+                if (records.containsKey("path")) {
+                    longName = records.get("path");
+                }
+                if (records.containsKey("size")) {
+                    paxSize = parsePaxSize(records.get("size"));
+                }
+                continue;
+            }
+            if (paxSize >= 0) {
+                size = paxSize;
+            }
+            String name = longName != null ? longName : entryName();
+            longName = null;
+            paxSize = -1;
+            boolean regularFile = type == '0' || type == '\0';
+            if (regularFile && name.endsWith(".txt")) {
+                return new Entry(archivePath + ARCHIVE_SEPARATOR + name, readContent(size));
+            }
+            skipContent(size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        try {
+            in.readFully(header);
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private boolean isZeroBlock() {
+        for (byte b : header) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String entryName() {
+        String name = cString(header, 0, 100);
+        boolean ustar = cString(header, 257, 5).equals("ustar");
+        String prefix = ustar ? cString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private byte[] readContent(long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("Entry too large in " + archivePath);
+        }
+        byte[] content = new byte[(int) size];
+        in.readFully(content);
+        skipFully(padding(size));
+        return content;
+    }
+
+    private void skipContent(long size) throws IOException {
+        skipFully(size + padding(size));
+    }
+
+    private void skipFully(long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            int skipped = in.skipBytes((int) Math.min(remaining, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("Truncated tar archive " + archivePath);
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static long padding(long size) {
+        return (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    /**
+     * A numeric header field: octal digits, or base-256 when the high bit
+     * of the first byte is set.
+     */
+    private long parseNumber(int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) == 0) {
+            return parseOctal(offset, length);
+        }
+        if (header[offset] != (byte) 0x80) {
+            // Negative, or more than 63 bits
+            throw new IOException("Unsupported base-256 number in " + archivePath);
+        }
+        long value = 0;
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (value >>> 55 != 0) {
+                throw new IOException("Unsupported base-256 number in " + archivePath);
+            }
+            value = value << 8 | (header[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private long parseOctal(int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Corrupt tar header in " + archivePath);
+            }
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Parses the "length key=value\n" records of a PAX extended header;
+     * the length counts the whole record.
+     */
+    private Map<String, String> parsePax(byte[] content) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int at = 0;
+        while (at < content.length && content[at] != 0) {
+            int space = at;
+            int length = 0;
+            while (space < content.length && content[space] >= '0' && content[space] <= '9') {
+                length = length * 10 + (content[space++] - '0');
+                if (length > content.length) {
+                    break;
+                }
+            }
+            int end = at + length;
+            if (space == at || space >= content.length || content[space] != ' '
+                    || end <= space + 1 || end > content.length || content[end - 1] != '\n') {
+                throw new IOException("Corrupt PAX header in " + archivePath);
+            }
+            String record = new String(content, space + 1, end - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals <= 0) {
+                throw new IOException("Corrupt PAX header in " + archivePath);
+            }
+            records.put(record.substring(0, equals), record.substring(equals + 1));
+            at = end;
+        }
+        return records;
+    }
+
+    private long parsePaxSize(String value) throws IOException {
+        try {
+            long size = Long.parseLong(value);
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IOException("Corrupt PAX size " + value + " in " + archivePath);
+    }
+
+    private static String cString(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static final int BLOCK_SIZE = 512;
+
+    private final String archivePath;
+    private final DataInputStream in;
+    private final byte[] header = new byte[BLOCK_SIZE];
+}
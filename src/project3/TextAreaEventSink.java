@@ -0,0 +1,26 @@
+package project3;
+
+/**
+ * Shows review handler events in the output area of the GUI, through its
+ * buffered console, so worker threads never touch Swing directly.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class TextAreaEventSink extends TextEventSink {
+
+    /**
+     * Constructor.
+     * @param console The console of the text area the events are appended to.
+     */
+    public TextAreaEventSink(OutputConsole console) {
+        this.console = console;
+    }
+
+    @Override
+    protected void print(String text) {
+        console.append(text);
+    }
+
+    private final OutputConsole console;
+}
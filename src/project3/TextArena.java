@@ -0,0 +1,207 @@
+package project3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only arena holding review text and file paths as UTF-8 in large
+ * byte[] slabs. A review moved into the arena keeps only offsets into it,
+ * so the heap holds a handful of big primitive arrays, which the garbage
+ * collector never has to scan, instead of two Strings per review. Text can
+ * be searched and tokenized in place, without decoding it.
+ * <p>
+ * Each review is stored as its text immediately followed by its path, and
+ * never spans two slabs. Space of deleted reviews is not reused; it is
+ * reclaimed when the database is saved and loaded again.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class TextArena implements TextStore {
+
+    /**
+     * Constructor with 8 MB slabs.
+     */
+    public TextArena() {
+        this(8 * 1024 * 1024);
+    }
+
+    /**
+     * Constructor.
+     * @param slabSize Size in bytes of each slab. Larger reviews get a slab
+     * of their own.
+     */
+    public TextArena(int slabSize) {
+        if (slabSize < 1) {
+            throw new IllegalArgumentException("slabSize must be positive");
+        }
+        this.slabSize = slabSize;
+        this.slabs = new byte[0][];
+    }
+
+    /**
+     * Copies the text and path of a review into the arena and turns the
+     * review into a view on them.
+     * @param review The review, with its text resident.
+     */
+    public void store(MovieReview review) {
+        byte[] text = review.getText().getBytes(StandardCharsets.UTF_8);
+        byte[] path = review.getFilePath().getBytes(StandardCharsets.UTF_8);
+        long address;
+        synchronized (this) {
+            address = allocate(text.length + path.length);
+            byte[] slab = slabs[slab(address)];
+            System.arraycopy(text, 0, slab, position(address), text.length);
+            System.arraycopy(path, 0, slab, position(address) + text.length, path.length);
+            usedBytes += text.length + path.length;
+        }
+        review.moveToArena(this, address, text.length, path.length);
+    }
+
+    /**
+     * Whether a review is a view on this arena.
+     * @param review The review.
+     * @return true if its text lives here.
+     */
+    public boolean holds(MovieReview review) {
+        return review.getTextStore() == this && !review.isTextResident();
+    }
+
+    /**
+     * Decodes the text of a review held by the arena.
+     * @param review The review.
+     * @return The review text.
+     */
+    @Override
+    public String loadText(MovieReview review) {
+        long address = review.getTextOffset();
+        return new String(slabs[slab(address)], position(address), review.getTextLength(),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the file path of a review held by the arena.
+     * @param review The review.
+     * @return The file path.
+     */
+    public String loadFilePath(MovieReview review) {
+        long address = review.getTextOffset();
+        return new String(slabs[slab(address)], position(address) + review.getTextLength(),
+                review.getPathLength(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the text of a review contains a byte sequence. For UTF-8
+     * encoded strings this is the same as String.contains.
+     * @param review A review held by the arena.
+     * @param needle The UTF-8 bytes searched for.
+     * @return true if the text contains needle.
+     */
+    public boolean contains(MovieReview review, byte[] needle) {
+        long address = review.getTextOffset();
+        byte[] slab = slabs[slab(address)];
+        int start = position(address);
+        int last = start + review.getTextLength() - needle.length;
+        if (needle.length == 0) {
+            return true;
+        }
+        byte first = needle[0];
+        for (int i = start; i <= last; i++) {
+            if (slab[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && slab[i + j] == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tokenizes the text of a review straight from the arena bytes.
+     * @param review A review held by the arena.
+     * @param tokenizer The tokenizer to use.
+     * @param visitor Called once for every token, in order.
+     * @return The number of tokens visited.
+     */
+    public int tokenize(MovieReview review, ReviewTokenizer tokenizer, ReviewTokenizer.TokenVisitor visitor) {
+        long address = review.getTextOffset();
+        return tokenizer.tokenize(slabs[slab(address)], position(address), review.getTextLength(), visitor);
+    }
+
+    /**
+     * Records that a review was deleted, so its bytes are no longer in use.
+     * @param review A review held by the arena.
+     */
+    public synchronized void free(MovieReview review) {
+        if (holds(review)) {
+            usedBytes -= review.getTextLength() + review.getPathLength();
+        }
+    }
+
+    /**
+     * Getter method for the bytes held by live reviews.
+     * @return usedBytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Getter method for the bytes allocated in slabs.
+     * @return The total size of all slabs.
+     */
+    public synchronized long getAllocatedBytes() {
+        long total = 0;
+        for (byte[] slab : slabs) {
+            total += slab.length;
+        }
+        return total;
+    }
+
+    /**
+     * Reserves space in the current slab, or in a new one when it is full.
+     * @param length The number of bytes.
+     * @return The address of the space.
+     */
+    private long allocate(int length) {
+        int current = slabs.length - 1;
+        if (current < 0 || slabs[current].length - fill < length) {
+            byte[][] grown = new byte[slabs.length + 1][];
+            System.arraycopy(slabs, 0, grown, 0, slabs.length);
+            grown[slabs.length] = new byte[Math.max(slabSize, length)];
+            // Readers see either the old or the new array, both valid for them
+            slabs = grown;
+            current++;
+            fill = 0;
+        }
+        long address = (long) current << 32 | fill;
+        fill += length;
+        return address;
+    }
+
+    private static int slab(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int position(long address) {
+        return (int) address;
+    }
+
+    private final int slabSize;
+
+    /**
+     * The slabs; replaced, never modified in place, when a slab is added.
+     */
+    private volatile byte[][] slabs;
+
+    /**
+     * Bytes used in the last slab.
+     */
+    private int fill;
+
+    private long usedBytes;
+}
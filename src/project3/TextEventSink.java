@@ -0,0 +1,119 @@
+package project3;
+
+/**
+ * Reports review handler events as the lines of text the app has always
+ * shown. Subclasses decide where the text goes.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public abstract class TextEventSink implements ReviewEventSink {
+
+    /**
+     * Writes a piece of text; line breaks are part of the text.
+     * @param text The text.
+     */
+    protected abstract void print(String text);
+
+    @Override
+    public void loadStarted(String path) {
+        print("Loading reviews...");
+    }
+
+    @Override
+    public void reviewImported(MovieReview review) {
+        StringBuilder text = new StringBuilder();
+        text.append("Review imported.\n");
+        text.append("ID: ").append(review.getId()).append("\n");
+        text.append("Text: ").append(review.getText()).append("\n");
+        text.append("Real Class: ").append(review.getRealScore()).append("\n");
+        text.append("Classification result: ").append(review.getPredictedScore()).append("\n");
+        if (review.getRealScore() == ReviewScore.UNKNOWN) {
+            text.append("Real class Unknown.\n");
+        } else if (review.getRealScore() == review.getPredictedScore()) {
+            text.append("Correctly classified.\n");
+        } else {
+            text.append("Misclassified.\n");
+        }
+        text.append("\n");
+        print(text.toString());
+    }
+
+    @Override
+    public void duplicateSkipped(MovieReview review, MovieReview original) {
+        print("Review is a duplicate of ID " + original.getId() + ", not imported.\n");
+    }
+
+    @Override
+    public void reviewsImported(ImportSummary summary) {
+        IngestStats stats = summary.getStats();
+        StringBuilder text = new StringBuilder();
+        text.append(summary.isArchive() ? "Archive imported.\n" : "Folder imported.\n");
+        text.append("Number of entries: ").append(summary.getImported()).append("\n");
+        if (summary.getDuplicates() > 0) {
+            text.append("Duplicates skipped: ").append(summary.getDuplicates()).append("\n");
+        }
+        text.append(String.format("Throughput: %.0f reviews/s, first review after %.1f ms%n",
+                stats.getReviewsPerSecond(), stats.getTimeToFirstReviewNanos() / 1e6));
+        // Only output accuracy if real class is known
+        if (summary.isLabelled()) {
+            text.append("Correctly classified: ").append(summary.getCorrect()).append("\n");
+            text.append("Misclassified: ").append(summary.getImported() - summary.getCorrect()).append("\n");
+            text.append("Accuracy: ").append(summary.getAccuracy()).append("%\n");
+        }
+        print(text.toString());
+    }
+
+    @Override
+    public void loadCancelled(String path, long imported) {
+        print("Cancelled, " + imported + " reviews imported.\n");
+    }
+
+    @Override
+    public void reviewDeleted(int id) {
+        print("Review with ID " + id + " deleted.\n");
+    }
+
+    @Override
+    public void reviewNotFound(int id) {
+        print("ID " + id + " does not exist.\n");
+    }
+
+    @Override
+    public void noReviewFound(int id) {
+        print("No review found.\n");
+    }
+
+    @Override
+    public void noReviewsFound(String query) {
+        print("No review(s) found.\n");
+    }
+
+    @Override
+    public void databaseLoadStarted() {
+        print("Reading database...");
+    }
+
+    @Override
+    public void databaseConverted(String legacyPath, String segmentPath) {
+        print("Converted " + legacyPath + " to " + segmentPath + "...");
+    }
+
+    @Override
+    public void databaseMissing() {
+        print("No database file found. A new empty database will be created.\n");
+    }
+
+    @Override
+    public void databaseLoaded(int reviews, int recoveredChanges) {
+        if (recoveredChanges > 0) {
+            print("Recovered " + recoveredChanges + " logged changes...");
+        }
+        print("Done.\n");
+    }
+
+    @Override
+    public void error(String message) {
+        print(message + "\n");
+    }
+}
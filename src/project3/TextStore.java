@@ -0,0 +1,18 @@
+package project3;
+
+/**
+ * Source of review text for reviews that do not keep their text in memory.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public interface TextStore {
+
+    /**
+     * Fetches the text of a review whose text is not resident.
+     * @param review The review.
+     * @return The review text.
+     * @throws java.io.UncheckedIOException if the text cannot be read.
+     */
+    String loadText(MovieReview review);
+}
@@ -0,0 +1,326 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from character trigrams to the ids of the reviews whose
+ * text contains them. A substring of three or more characters can only occur
+ * in reviews that contain all of its trigrams, so intersecting their posting
+ * lists narrows a search down to a few candidates that are then verified
+ * with String.contains.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class TrigramIndex {
+
+    /**
+     * Creates an empty index.
+     */
+    public TrigramIndex() {
+        postings = new HashMap<>();
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Adds a review to the index. The review must not be in the index yet.
+     * @param id The id of the review.
+     * @param text The text of the review.
+     */
+    public void add(int id, String text) {
+        long[] trigrams = distinctTrigrams(text);
+        lock.writeLock().lock();
+        try {
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+            }
+            indexed++;
+            fingerprint += mix(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a review from the index. The review must be in the index.
+     * @param id The id of the review.
+     * @param text The text the review was indexed with.
+     */
+    public void remove(int id, String text) {
+        long[] trigrams = distinctTrigrams(text);
+        lock.writeLock().lock();
+        try {
+            for (long trigram : trigrams) {
+                Postings list = postings.get(trigram);
+                if (list != null && list.remove(id) && list.size == 0) {
+                    postings.remove(trigram);
+                }
+            }
+            indexed--;
+            fingerprint -= mix(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the reviews that may contain the substring.
+     * @param substring The substring to search for.
+     * @return The sorted candidate ids, or null if the substring is shorter
+     * than a trigram and every review is a candidate.
+     */
+    public int[] candidates(String substring) {
+        if (substring.length() < 3) {
+            return null;
+        }
+        long[] trigrams = distinctTrigrams(substring);
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = postings.get(trigrams[i]);
+                if (lists[i] == null) {
+                    return new int[0];
+                }
+            }
+            // Start from the rarest trigram so the working set only shrinks
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+            int size = result.length;
+            for (int i = 1; i < lists.length && size > 0; i++) {
+                size = intersect(result, size, lists[i]);
+            }
+            return Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index was built from exactly the given reviews.
+     * @param ids The ids of the reviews in the database.
+     * @return true if the index covers the same set of ids.
+     */
+    public boolean matches(int[] ids) {
+        long count = 0;
+        long expected = 0;
+        for (int id : ids) {
+            count++;
+            expected += mix(id);
+        }
+        lock.readLock().lock();
+        try {
+            return count == indexed && expected == fingerprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Getter method for the number of distinct trigrams.
+     * @return The number of posting lists.
+     */
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to a file, through a temp file and an atomic move.
+     * @param indexPath Path of the index file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String indexPath) throws IOException {
+        String temp = indexPath + ".tmp";
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(indexed);
+            out.writeLong(fingerprint);
+            out.writeInt(postings.size());
+            for (Map.Entry<Long, Postings> entry : postings.entrySet()) {
+                Postings list = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(list.size);
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(list.ids[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(Paths.get(temp), Paths.get(indexPath),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by save.
+     * @param indexPath Path of the index file.
+     * @return The index.
+     * @throws IOException if the file cannot be read or is not an index.
+     */
+    public static TrigramIndex load(String indexPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(indexPath), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("File " + indexPath + " is not a trigram index");
+            }
+            TrigramIndex index = new TrigramIndex();
+            index.indexed = in.readLong();
+            index.fingerprint = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long trigram = in.readLong();
+                Postings list = new Postings(in.readInt());
+                for (int j = 0; j < list.ids.length; j++) {
+                    list.ids[j] = in.readInt();
+                }
+                list.size = list.ids.length;
+                index.postings.put(trigram, list);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Keeps the ids in result that are also in list, in place.
+     * @return The new size of result.
+     */
+    private static int intersect(int[] result, int size, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < list.size; i++) {
+            int id = result[i];
+            while (j < list.size && list.ids[j] < id) {
+                j++;
+            }
+            if (j < list.size && list.ids[j] == id) {
+                result[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * The distinct trigrams of a text, each packed into a long.
+     */
+    private static long[] distinctTrigrams(String text) {
+        int n = text.length() - 2;
+        if (n <= 0) {
+            return new long[0];
+        }
+        long[] trigrams = new long[n];
+        for (int i = 0; i < n; i++) {
+            trigrams[i] = ((long) text.charAt(i) << 32)
+                    | ((long) text.charAt(i + 1) << 16)
+                    | text.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 1;
+        for (int i = 1; i < n; i++) {
+            if (trigrams[i] != trigrams[distinct - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * Hashes an id for the order independent fingerprint of the index.
+     */
+    private static long mix(int id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * A sorted, growable list of review ids.
+     */
+    private static final class Postings {
+
+        Postings() {
+            this(4);
+        }
+
+        Postings(int capacity) {
+            ids = new int[capacity];
+        }
+
+        void add(int id) {
+            // Ids mostly arrive in increasing order, so check the tail first
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            ensureCapacity();
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+        }
+
+        int[] ids;
+        int size;
+    }
+
+    private final Map<Long, Postings> postings;
+    private final ReadWriteLock lock;
+
+    /**
+     * Number of reviews in the index.
+     */
+    private long indexed;
+
+    /**
+     * Sum of the mixed ids of the indexed reviews.
+     */
+    private long fingerprint;
+
+    /**
+     * "MRTI" in ASCII.
+     */
+    private static final int MAGIC = 0x4D525449;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+}
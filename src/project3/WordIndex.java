@@ -0,0 +1,796 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Positional inverted index over the words of the reviews, tokenized the same
+ * way classifyReview tokenizes them. Each word's posting list is a
+ * compressed byte stream of delta encoded review ids, each followed by the
+ * delta encoded positions of the word in that review, all as varints.
+ * <p>
+ * Queries combine words with AND, OR and NOT (upper case), parentheses and
+ * double quoted phrases, e.g. <code>boring AND acting NOT "the plot"</code>.
+ * Adjacent terms without an operator are ANDed. NOT binds tighter than AND,
+ * which binds tighter than OR.
+ * <p>
+ * A review added with an id below the last one in a list cannot be
+ * appended to the stream. It waits in a small buffer of the list instead,
+ * and the buffer is merged into the stream in one pass once it holds a
+ * quarter of the list, or before the next query. Deleted reviews are
+ * dropped from a list whenever it is rewritten, and every list is rewritten
+ * once a quarter of the indexed reviews have been deleted.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class WordIndex {
+
+    /**
+     * Creates an empty index.
+     */
+    public WordIndex() {
+        terms = new HashMap<>();
+        documents = new BitSet();
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Adds a review to the index. Ids come in any order but are not reused
+     * after a remove.
+     * @param id The id of the review.
+     * @param text The text of the review.
+     */
+    public void add(int id, String text) {
+        // Collect the positions of each word before taking the lock
+        Map<String, IntList> positions = new HashMap<>();
+        int[] position = {0};
+        ReviewTokenizer.forCurrentThread().tokenize(text, (token, length) -> {
+            String word = new String(token, 0, length);
+            positions.computeIfAbsent(word, w -> new IntList()).add(position[0]++);
+        });
+
+        lock.writeLock().lock();
+        try {
+            // Live first, so a merge triggered by this review keeps it
+            if (!documents.get(id)) {
+                documents.set(id);
+                live++;
+            }
+            for (Map.Entry<String, IntList> entry : positions.entrySet()) {
+                Postings postings = terms.computeIfAbsent(entry.getKey(), w -> new Postings());
+                if (postings.add(id, entry.getValue(), documents) && !postings.queued) {
+                    postings.queued = true;
+                    unmerged.add(postings);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a review from the index. Its postings are filtered out of
+     * every result, and dropped from the lists when they are next rewritten.
+     * @param id The id of the review.
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (documents.get(id)) {
+                documents.clear(id);
+                live--;
+                if (++removed > Math.max(MIN_PURGE, live / 4)) {
+                    purge();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites every list without the postings of deleted reviews. Runs
+     * under the write lock.
+     */
+    private void purge() {
+        terms.values().removeIf(postings -> {
+            postings.merge(documents);
+            postings.queued = false;
+            return postings.count == 0;
+        });
+        unmerged.clear();
+        removed = 0;
+    }
+
+    /**
+     * Takes the read lock, first merging the lists with buffered postings
+     * so that queries only read the streams.
+     */
+    private void lockForReading() {
+        lock.readLock().lock();
+        if (unmerged.isEmpty()) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            for (Postings postings : unmerged) {
+                postings.merge(documents);
+                postings.queued = false;
+            }
+            unmerged.clear();
+        } finally {
+            // Downgrade, so no writer gets in before the query runs
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a boolean / phrase query.
+     * @param query The query.
+     * @return The sorted ids of the matching reviews.
+     * @throws IllegalArgumentException if the query is malformed.
+     */
+    public int[] search(String query) {
+        List<String> tokens = lex(query);
+        lockForReading();
+        try {
+            Parser parser = new Parser(tokens);
+            int[] result = parser.parseOr();
+            if (parser.hasNext()) {
+                throw new IllegalArgumentException("Unexpected \"" + parser.peek() + "\" in query");
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Getter method for the number of distinct words.
+     * @return The number of posting lists.
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Getter method for the compressed size of all posting lists.
+     * @return The size in bytes.
+     */
+    public long postingBytes() {
+        lockForReading();
+        try {
+            long bytes = 0;
+            for (Postings postings : terms.values()) {
+                bytes += postings.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index holds exactly the given reviews.
+     * @param ids The ids of the reviews in the database.
+     * @return true if the index covers the same set of ids.
+     */
+    public boolean matches(int[] ids) {
+        lock.readLock().lock();
+        try {
+            if (ids.length != live) {
+                return false;
+            }
+            for (int id : ids) {
+                if (!documents.get(id)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to a file, through a temp file and an atomic move.
+     * Buffered and deleted postings are merged and purged first, so the
+     * file holds only the streams.
+     * @param indexPath Path of the index file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String indexPath) throws IOException {
+        String temp = indexPath + ".tmp";
+        lock.writeLock().lock();
+        try {
+            if (removed > 0 || !unmerged.isEmpty()) {
+                purge();
+            }
+            // Downgrade, so adds wait only while the lists are rewritten
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(live);
+            long[] words = documents.toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings list = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(list.count);
+                out.writeInt(list.lastId);
+                out.writeInt(list.length);
+                out.write(list.data, 0, list.length);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(Paths.get(temp), Paths.get(indexPath),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by save.
+     * @param indexPath Path of the index file.
+     * @return The index.
+     * @throws IOException if the file cannot be read or is not an index.
+     */
+    public static WordIndex load(String indexPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(indexPath), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("File " + indexPath + " is not a word index");
+            }
+            WordIndex index = new WordIndex();
+            index.live = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            index.documents.or(BitSet.valueOf(words));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String word = in.readUTF();
+                Postings list = new Postings();
+                list.count = in.readInt();
+                list.lastId = in.readInt();
+                list.length = in.readInt();
+                if (list.count < 0 || list.length < 0) {
+                    throw new IOException("Corrupt word index " + indexPath);
+                }
+                list.data = new byte[Math.max(16, list.length)];
+                in.readFully(list.data, 0, list.length);
+                index.terms.put(word, list);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Splits a query into words, operators, parentheses and quoted phrases.
+     * Phrases keep their leading quote so the parser can tell them apart.
+     */
+    private static List<String> lex(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated phrase in query");
+                }
+                tokens.add(query.substring(i, end));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < n && !Character.isWhitespace(query.charAt(i))
+                        && query.charAt(i) != '(' && query.charAt(i) != ')' && query.charAt(i) != '"') {
+                    i++;
+                }
+                tokens.add(query.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Recursive descent parser that evaluates the query as it goes; every
+     * sub-expression yields a sorted array of live review ids.
+     */
+    private final class Parser {
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        int[] parseOr() {
+            int[] result = parseAnd();
+            while (hasNext() && peek().equals("OR")) {
+                next();
+                result = union(result, parseAnd());
+            }
+            return result;
+        }
+
+        int[] parseAnd() {
+            int[] result = parseUnary();
+            while (hasNext() && !peek().equals("OR") && !peek().equals(")")) {
+                if (peek().equals("AND")) {
+                    next();
+                }
+                if (hasNext() && peek().equals("NOT")) {
+                    next();
+                    result = difference(result, parseUnary());
+                } else {
+                    result = intersect(result, parseUnary());
+                }
+            }
+            return result;
+        }
+
+        int[] parseUnary() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Query ends too early");
+            }
+            String token = next();
+            if (token.equals("NOT")) {
+                return difference(all(), parseUnary());
+            }
+            if (token.equals("(")) {
+                int[] result = parseOr();
+                if (!hasNext() || !next().equals(")")) {
+                    throw new IllegalArgumentException("Missing ) in query");
+                }
+                return result;
+            }
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                throw new IllegalArgumentException("Unexpected \"" + token + "\" in query");
+            }
+            String text = token.startsWith("\"") ? token.substring(1) : token;
+            return phrase(text);
+        }
+
+        boolean hasNext() {
+            return index < tokens.size();
+        }
+
+        String peek() {
+            return tokens.get(index);
+        }
+
+        String next() {
+            return tokens.get(index++);
+        }
+
+        private final List<String> tokens;
+        private int index;
+    }
+
+    /**
+     * Reviews containing the words of the text next to each other, in order.
+     * A single word is just a posting list lookup.
+     */
+    private int[] phrase(String text) {
+        List<String> words = new ArrayList<>();
+        ReviewTokenizer.forCurrentThread().tokenize(text,
+                (token, length) -> words.add(new String(token, 0, length)));
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        Postings[] lists = new Postings[words.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = terms.get(words.get(i));
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        int[] candidates = lists[0].ids(documents);
+        for (int i = 1; i < lists.length; i++) {
+            candidates = intersect(candidates, lists[i].ids(documents));
+        }
+        if (lists.length == 1 || candidates.length == 0) {
+            return candidates;
+        }
+
+        // Positions of every word, only for the candidate reviews
+        int[][][] positions = new int[lists.length][][];
+        for (int i = 0; i < lists.length; i++) {
+            positions[i] = lists[i].positions(candidates);
+        }
+        int kept = 0;
+        for (int d = 0; d < candidates.length; d++) {
+            if (adjacent(positions, d)) {
+                candidates[kept++] = candidates[d];
+            }
+        }
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    /**
+     * Whether word i occurs at position p + i for some start position p.
+     */
+    private static boolean adjacent(int[][][] positions, int doc) {
+        for (int start : positions[0][doc]) {
+            boolean match = true;
+            for (int i = 1; i < positions.length && match; i++) {
+                match = Arrays.binarySearch(positions[i][doc], start + i) >= 0;
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] all() {
+        return documents.stream().toArray();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                out[k++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                out[k++] = b[j++];
+            } else {
+                out[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    private static int[] difference(int[] a, int[] b) {
+        int[] out = new int[a.length];
+        int j = 0;
+        int k = 0;
+        for (int id : a) {
+            while (j < b.length && b[j] < id) {
+                j++;
+            }
+            if (j == b.length || b[j] != id) {
+                out[k++] = id;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    /**
+     * Compressed posting list of one word: for every review, in increasing id
+     * order, varint(id delta), varint(number of positions) and the varint
+     * position deltas.
+     */
+    private static final class Postings {
+
+        /**
+         * Adds the postings of a review. An id above the last one is
+         * appended; a lower one is buffered, and the buffer is merged once
+         * it is large enough.
+         * @return true if postings are left in the buffer
+         */
+        boolean add(int id, IntList positions, BitSet live) {
+            if (count == 0 || id > lastId) {
+                append(id, positions.values, positions.size);
+                return pendingCount > 0;
+            }
+            if (pendingCount == pendingIds.length) {
+                pendingIds = Arrays.copyOf(pendingIds, pendingCount * 2);
+                pendingPositions = Arrays.copyOf(pendingPositions, pendingCount * 2);
+            }
+            pendingIds[pendingCount] = id;
+            pendingPositions[pendingCount] = Arrays.copyOf(positions.values, positions.size);
+            pendingCount++;
+            // A quarter of the list keeps the rewrites linear overall
+            if (pendingCount >= Math.max(MIN_MERGE, count / 4)) {
+                merge(live);
+            }
+            return pendingCount > 0;
+        }
+
+        private void append(int id, int[] positions, int size) {
+            writeVarint(count == 0 ? id : id - lastId);
+            writeVarint(size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                writeVarint(positions[i] - previous);
+                previous = positions[i];
+            }
+            lastId = id;
+            count++;
+        }
+
+        /**
+         * Rewrites the stream in one pass, merging in the buffered postings
+         * in id order and dropping the reviews that are not live. A buffered
+         * review replaces one of the same id in the stream.
+         */
+        void merge(BitSet live) {
+            // Sort the buffer by id, the later of two equal ids last
+            long[] order = new long[pendingCount];
+            for (int i = 0; i < pendingCount; i++) {
+                order[i] = (long) pendingIds[i] << 32 | i;
+            }
+            Arrays.sort(order);
+
+            Reader reader = new Reader();
+            byte[] old = data;
+            int oldCount = count;
+            data = new byte[Math.max(16, length + pendingCount * 8)];
+            length = 0;
+            count = 0;
+            lastId = 0;
+            int p = 0;
+            for (int i = 0; i < oldCount; i++) {
+                int id = reader.nextId(old);
+                for (; p < order.length && (int) (order[p] >>> 32) < id; p++) {
+                    appendPending(order, p, live);
+                }
+                int start = reader.offset;
+                reader.skipPositions(old);
+                if (p < order.length && (int) (order[p] >>> 32) == id) {
+                    continue;
+                }
+                if (live.get(id)) {
+                    // The positions do not depend on the id delta
+                    writeVarint(count == 0 ? id : id - lastId);
+                    copy(old, start, reader.offset - start);
+                    lastId = id;
+                    count++;
+                }
+            }
+            for (; p < order.length; p++) {
+                appendPending(order, p, live);
+            }
+            pendingIds = new int[4];
+            pendingPositions = new int[4][];
+            pendingCount = 0;
+        }
+
+        private void appendPending(long[] order, int p, BitSet live) {
+            int id = (int) (order[p] >>> 32);
+            boolean last = p + 1 == order.length || (int) (order[p + 1] >>> 32) != id;
+            if (last && live.get(id)) {
+                int[] positions = pendingPositions[(int) order[p]];
+                append(id, positions, positions.length);
+            }
+        }
+
+        private void copy(byte[] from, int offset, int size) {
+            if (length + size > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + size));
+            }
+            System.arraycopy(from, offset, data, length, size);
+            length += size;
+        }
+
+        /**
+         * Decodes the ids of the reviews that are still live.
+         */
+        int[] ids(BitSet live) {
+            int[] ids = new int[count];
+            int k = 0;
+            Reader reader = new Reader();
+            for (int i = 0; i < count; i++) {
+                int id = reader.nextId(data);
+                reader.skipPositions(data);
+                if (live.get(id)) {
+                    ids[k++] = id;
+                }
+            }
+            return Arrays.copyOf(ids, k);
+        }
+
+        /**
+         * Decodes the positions for each of the given sorted ids, which must
+         * all be in this list.
+         */
+        int[][] positions(int[] ids) {
+            int[][] result = new int[ids.length][];
+            int k = 0;
+            Reader reader = new Reader();
+            for (int i = 0; i < count && k < ids.length; i++) {
+                int id = reader.nextId(data);
+                if (id == ids[k]) {
+                    result[k++] = reader.positions(data);
+                } else {
+                    reader.skipPositions(data);
+                }
+            }
+            return result;
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Sequential decoder over a byte stream of the list.
+         */
+        private static final class Reader {
+
+            int nextId(byte[] data) {
+                id = started ? id + readVarint(data) : readVarint(data);
+                started = true;
+                return id;
+            }
+
+            int[] positions(byte[] data) {
+                int[] positions = new int[readVarint(data)];
+                int previous = 0;
+                for (int i = 0; i < positions.length; i++) {
+                    previous += readVarint(data);
+                    positions[i] = previous;
+                }
+                return positions;
+            }
+
+            void skipPositions(byte[] data) {
+                int n = readVarint(data);
+                for (int i = 0; i < n; i++) {
+                    while ((data[offset++] & 0x80) != 0) {
+                        // Skip continuation bytes
+                    }
+                }
+            }
+
+            private int readVarint(byte[] data) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                return value;
+            }
+
+            private int offset;
+            private int id;
+            private boolean started;
+        }
+
+        private byte[] data = new byte[16];
+        private int length;
+        private int count;
+        private int lastId;
+
+        /**
+         * Postings added below lastId, waiting to be merged.
+         */
+        private int[] pendingIds = new int[4];
+        private int[][] pendingPositions = new int[4][];
+        private int pendingCount;
+
+        /**
+         * Whether the list is in unmerged.
+         */
+        private boolean queued;
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    private static final class IntList {
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] values = new int[4];
+        private int size;
+    }
+
+    /**
+     * Posting list of every word.
+     */
+    private final Map<String, Postings> terms;
+
+    /**
+     * Ids of the reviews currently in the index; deleted reviews are cleared.
+     */
+    private final BitSet documents;
+
+    /**
+     * Lists with buffered postings, merged before the next query.
+     */
+    private final List<Postings> unmerged = new ArrayList<>();
+
+    /**
+     * Number of live reviews, and of reviews deleted since the last purge.
+     */
+    private int live;
+    private int removed;
+
+    private final ReadWriteLock lock;
+
+    /**
+     * "MRWI" in ASCII.
+     */
+    private static final int MAGIC = 0x4D525749;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Fewest buffered postings worth a merge.
+     */
+    private static final int MIN_MERGE = 32;
+
+    /**
+     * Fewest deletions worth rewriting every list.
+     */
+    private static final int MIN_PURGE = 1024;
+}
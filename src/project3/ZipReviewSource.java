@@ -0,0 +1,51 @@
+package project3;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The .txt entries of a zip archive, in archive order, read while the
+ * archive is being inflated.
+ *
+ * @author Stanley
+ * @author Dike
+ */
+public class ZipReviewSource implements ReviewSource {
+
+    /**
+     * Constructor.
+     * @param archive The zip archive.
+     * @throws IOException if the archive cannot be opened.
+     */
+    public ZipReviewSource(Path archive) throws IOException {
+        this.archivePath = archive.toString();
+        this.in = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive.toFile()), 64 * 1024));
+    }
+
+    /**
+     * Returns the next .txt entry of the archive.
+     * @return The entry with its bytes, or null after the last one.
+     * @throws IOException if the archive cannot be read.
+     */
+    @Override
+    public Entry next() throws IOException {
+        for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+            if (!entry.isDirectory() && entry.getName().endsWith(".txt")) {
+                return new Entry(archivePath + ARCHIVE_SEPARATOR + entry.getName(), in.readAllBytes());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private final String archivePath;
+    private final ZipInputStream in;
+}